@@ -2,6 +2,8 @@ package com.wind.cache.diskdatacacher;
 
 import android.app.Application;
 
+import com.wind.cache.diskdatacacher.cachetool.AndroidCacheLogger;
+import com.wind.cache.diskdatacacher.cachetool.DiskDataCacher;
 import com.wind.cache.diskdatacacher.cachetool.DiskStringCacheManager;
 
 import java.io.File;
@@ -11,7 +13,14 @@ public class App extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+        DiskDataCacher.setLogger(new AndroidCacheLogger());
         DiskStringCacheManager.init(new File(getCacheDir(), DiskStringCacheManager.DEFAULT_CACHE_FILE_NAME),
                 DiskStringCacheManager.MAX_CACHE_SIZE);
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        DiskStringCacheManager.get().onTrimMemory(level);
+    }
 }
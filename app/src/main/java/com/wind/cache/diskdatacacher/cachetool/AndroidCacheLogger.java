@@ -0,0 +1,20 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import android.util.Log;
+
+/**
+ * 将cachecore模块的日志转发到android.util.Log
+ */
+
+public class AndroidCacheLogger implements CacheLogger {
+
+    @Override
+    public void d(String tag, String msg) {
+        Log.d(tag, msg);
+    }
+
+    @Override
+    public void e(String tag, String msg, Throwable tr) {
+        Log.e(tag, msg, tr);
+    }
+}
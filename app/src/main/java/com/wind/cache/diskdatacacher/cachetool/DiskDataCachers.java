@@ -0,0 +1,23 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import android.content.Context;
+
+import java.io.File;
+
+/**
+ * Android上创建DiskDataCacher的便捷方法，替代原先DiskDataCacher中接收Context的构造方法
+ */
+
+public final class DiskDataCachers {
+
+    private DiskDataCachers() {
+    }
+
+    public static DiskDataCacher create(Context context, String cacheFolderName) {
+        return new DiskDataCacher(new File(context.getCacheDir(), cacheFolderName));
+    }
+
+    public static DiskDataCacher create(Context context, String cacheFolderName, long maxSize) {
+        return new DiskDataCacher(new File(context.getCacheDir(), cacheFolderName), maxSize);
+    }
+}
@@ -5,7 +5,9 @@ import android.os.Looper;
 import android.text.TextUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.Collection;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -17,17 +19,21 @@ import java.util.concurrent.TimeUnit;
  */
 public class DiskStringCacheManager {
 
-    private DataCache mDiskCache;
+    private DiskDataCacher mDiskCache;
 
     private static DiskStringCacheManager sCacheManager;
 
-    private int mMaxCacheSize;
+    private long mMaxCacheSize;
 
     private File mCacheFileDir;
 
+    private KeyHasher mKeyHasher;
+
     public static final String DEFAULT_CACHE_FILE_NAME = "my_data_cache";
     public static final int MAX_CACHE_SIZE = 5 * 1024 * 1024;  //默认缓存5M
 
+    private static final long ADAPTIVE_SAMPLE_INTERVAL = 60 * 1000;  //自适应容量的采样间隔1分钟
+
     private static final String DEFAULT_FILE_PATH = "data/data/com.wind.cache.diskdatacacher/cache/"+DEFAULT_CACHE_FILE_NAME;
 
     private Handler handler = new Handler(Looper.getMainLooper());
@@ -46,11 +52,18 @@ public class DiskStringCacheManager {
      * @param cacheFile 缓存目录
      * @param maxSize 最大缓存带下
      */
-    public static void init(File cacheFile, int maxSize) {
+    public static void init(File cacheFile, long maxSize) {
+        init(cacheFile, maxSize, KeyHasher.SHA256);
+    }
+
+    /**
+     * @param keyHasher key转换为文件名的方式，默认为兼容旧缓存目录的KeyHasher.SHA256
+     */
+    public static void init(File cacheFile, long maxSize, KeyHasher keyHasher) {
         if (sCacheManager == null) {
             synchronized (DiskStringCacheManager.class) {
                 if (sCacheManager == null) {
-                    sCacheManager = new DiskStringCacheManager(cacheFile, maxSize);
+                    sCacheManager = new DiskStringCacheManager(cacheFile, maxSize, keyHasher);
                     sCacheManager.init();
                 }
             }
@@ -64,16 +77,17 @@ public class DiskStringCacheManager {
         return sCacheManager;
     }
 
-    private DiskStringCacheManager(File cacheFile, int maxSize) {
+    private DiskStringCacheManager(File cacheFile, long maxSize, KeyHasher keyHasher) {
         mCacheFileDir = cacheFile;
         mMaxCacheSize = maxSize;
+        mKeyHasher = keyHasher;
     }
 
-    private DataCache getDiskCacher() {
+    private DiskDataCacher getDiskCacher() {
         if (mDiskCache == null) {
             synchronized (DiskDataCacher.class) {
                 if (mDiskCache == null) {
-                    mDiskCache = new DiskDataCacher(mCacheFileDir, mMaxCacheSize);
+                    mDiskCache = new DiskDataCacher(mCacheFileDir, mMaxCacheSize, mKeyHasher);
                 }
             }
         }
@@ -151,6 +165,16 @@ public class DiskStringCacheManager {
      * @param maxValidTime 有效期时间，单位是毫秒，比如：一天内有效，maxValidTime = 24 * 60 * 60 * 1000;
      */
     public void put(String key, String value, long maxValidTime) {
+        put(key, value, maxValidTime, null);
+    }
+
+    /**
+     * @param key          键
+     * @param value        值
+     * @param maxValidTime 有效期时间，单位是毫秒，0表示一直有效
+     * @param tag          命名空间，比如某个用户或者某个功能的数据使用同一个tag，可以通过invalidateTag批量清除
+     */
+    public void put(String key, String value, long maxValidTime, String tag) {
         if (TextUtils.isEmpty(key) || TextUtils.isEmpty(value)) {
             return;
         }
@@ -162,6 +186,7 @@ public class DiskStringCacheManager {
         DataCache.Entry entry = new DataCache.Entry();
         entry.data = data;
         entry.validTimestamp = validTimestamp;
+        entry.tag = tag;
         getDiskCacher().put(key, entry);
     }
 
@@ -174,10 +199,82 @@ public class DiskStringCacheManager {
         return new String(data);
     }
 
+    //在后台预读即将使用的key，之后的get不需要等待磁盘读取
+    public void prefetch(Collection<String> keys) {
+        getDiskCacher().prefetch(keys);
+    }
+
+    //只查询内存中的缓存信息，不读取文件
+    public boolean contains(String key) {
+        return getDiskCacher().contains(key);
+    }
+
+    /**
+     * 只延长缓存的有效期，不重写缓存数据
+     *
+     * @param maxValidTime 从现在开始的有效期时间，单位是毫秒，0表示一直有效
+     */
+    public boolean touch(String key, long maxValidTime) {
+        return getDiskCacher().touch(key, maxValidTime > 0 ? System.currentTimeMillis() + maxValidTime : 0);
+    }
+
+    //固定的缓存不会因为超过最大缓存大小而被淘汰，固定的缓存超过最大缓存大小的一半时返回false
+    public boolean setPinned(String key, boolean pinned) {
+        return getDiskCacher().setPinned(key, pinned);
+    }
+
     public void delete(String key) {
         getDiskCacher().remove(key);
     }
 
+    public int removeByPrefix(String prefix) {
+        return getDiskCacher().removeByPrefix(prefix);
+    }
+
+    public int invalidateTag(String tag) {
+        return getDiskCacher().invalidateTag(tag);
+    }
+
+    public void setTagQuota(String tag, long maxSizeInBytes) {
+        getDiskCacher().setTagQuota(tag, maxSizeInBytes);
+    }
+
+    /**
+     * 开启自适应容量，缓存最多占用剩余存储空间的freeSpaceFraction，但不小于初始化时设置的最大缓存大小
+     */
+    public void enableAdaptiveCapacity(float freeSpaceFraction, long maxSizeInBytes) {
+        getDiskCacher().enableAdaptiveCapacity(freeSpaceFraction, mMaxCacheSize, maxSizeInBytes, ADAPTIVE_SAMPLE_INTERVAL);
+    }
+
+    //在Application的onTrimMemory中调用
+    public void onTrimMemory(int level) {
+        getDiskCacher().onTrimMemory(level);
+    }
+
+    //导出缓存快照，用于预热其他设备或者重新安装后的缓存
+    public int exportSnapshot(File snapshotFile) throws IOException {
+        return getDiskCacher().exportSnapshot(snapshotFile);
+    }
+
+    public int importSnapshot(File snapshotFile) throws IOException {
+        return getDiskCacher().importSnapshot(snapshotFile);
+    }
+
+    /**
+     * 监听key的变化(put、删除、过期和淘汰)，回调不在主线程
+     */
+    public void addOnChangeListener(String key, DiskDataCacher.OnChangeListener listener) {
+        getDiskCacher().addOnChangeListener(key, listener);
+    }
+
+    public void addOnChangeListenerForPrefix(String prefix, DiskDataCacher.OnChangeListener listener) {
+        getDiskCacher().addOnChangeListenerForPrefix(prefix, listener);
+    }
+
+    public void removeOnChangeListener(DiskDataCacher.OnChangeListener listener) {
+        getDiskCacher().removeOnChangeListener(listener);
+    }
+
     public void clear() {
         getDiskCacher().clear();
     }
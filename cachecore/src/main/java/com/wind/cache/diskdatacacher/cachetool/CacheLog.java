@@ -0,0 +1,29 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+/**
+ * 包内使用的日志入口，通过DiskDataCacher.setLogger替换实际的输出
+ */
+
+final class CacheLog {
+
+    private static volatile CacheLogger sLogger = CacheLogger.SYSTEM;
+
+    private CacheLog() {
+    }
+
+    static void setLogger(CacheLogger logger) {
+        sLogger = logger != null ? logger : CacheLogger.SYSTEM;
+    }
+
+    static void d(String tag, String msg) {
+        sLogger.d(tag, msg);
+    }
+
+    static void e(String tag, String msg) {
+        sLogger.e(tag, msg, null);
+    }
+
+    static void e(String tag, String msg, Throwable tr) {
+        sLogger.e(tag, msg, tr);
+    }
+}
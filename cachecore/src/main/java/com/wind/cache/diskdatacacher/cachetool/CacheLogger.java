@@ -0,0 +1,27 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+/**
+ * 日志输出接口，core模块不依赖Android，由使用方决定日志输出到哪里
+ */
+
+public interface CacheLogger {
+
+    void d(String tag, String msg);
+
+    void e(String tag, String msg, Throwable tr);
+
+    //默认只将错误输出到标准错误，调试日志(每次读写和淘汰都会输出)直接忽略，避免服务端和测试中刷屏
+    CacheLogger SYSTEM = new CacheLogger() {
+        @Override
+        public void d(String tag, String msg) {
+        }
+
+        @Override
+        public void e(String tag, String msg, Throwable tr) {
+            System.err.println(tag + ": " + msg);
+            if (tr != null) {
+                tr.printStackTrace();
+            }
+        }
+    };
+}
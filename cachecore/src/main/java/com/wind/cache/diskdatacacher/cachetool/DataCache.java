@@ -0,0 +1,60 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+public interface DataCache {
+
+    void initialize();
+
+    Entry get(String key);
+
+    void put(String key, Entry entry);
+
+    void remove(String key);
+
+    void clear();
+
+    class Entry {
+
+        public static final int PRIORITY_LOW = 0;
+
+        public static final int PRIORITY_NORMAL = 1;
+
+        public static final int PRIORITY_HIGH = 2;
+
+        public byte[] data;
+
+        public long validTimestamp;
+
+        //所属的命名空间(tag)，可以为空，同一tag的数据可以批量清除，也可以单独设置空间配额
+        public String tag;
+
+        //数据的版本，比如服务端返回的ETag，可以为空
+        public String etag;
+
+        //淘汰时先删除低优先级的数据
+        public int priority = PRIORITY_NORMAL;
+
+        //固定的数据不会因为超过最大缓存大小而被淘汰，但过期后依然会被删除；DiskDataCacher中固定的数据最多占用最大缓存大小的一半，超过时不会写入
+        public boolean pinned;
+
+    }
+
+    /**
+     * 缓存的元信息，不包含数据本身
+     */
+    class EntryInfo {
+
+        //数据的大小，不包含文件头
+        public long size;
+
+        public long validTimestamp;
+
+        public String tag;
+
+        public String etag;
+
+        public int priority;
+
+        public boolean pinned;
+
+    }
+}
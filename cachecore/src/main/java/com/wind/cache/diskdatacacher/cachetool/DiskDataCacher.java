@@ -0,0 +1,2346 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 基于LRU算法的磁盘缓存工具
+ * 支持缓存有效期的设置，当缓存文件达到最大阈值时，先删除过期数据，再删除最近最少使用的数据
+ * added by Windy
+ */
+
+public class DiskDataCacher implements DataCache, Closeable {
+
+    public static final String TAG = DiskDataCacher.class.getSimpleName();
+
+    public static final boolean DEBUG = true;
+
+    private static final long DEFAULT_DISK_USAGE_BYTES = 5 * 1024 * 1024;
+
+    //java数组的最大长度，超过此大小的缓存无法一次性读入内存
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    //快照文件的文件头
+    private static final long SNAPSHOT_MAGIC = 0xD15CCAC4E05A0001L;
+
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    //记录启动后访问的key的文件，保存在缓存目录中，初始化时需要跳过
+    private static final String WARMUP_FILE_NAME = ".warmup";
+
+    //最多记录的启动预热key个数
+    private static final int MAX_WARMUP_KEYS = 256;
+
+    //重写文件头时使用的临时文件后缀，初始化时遇到残留的临时文件直接删除
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    //writeEntryLocked的结果
+    private static final int WRITE_FAILED = 0;
+    private static final int WRITE_UPDATED = 1;
+    private static final int WRITE_CREATED = 2;
+
+    //onTrimMemory的level，取值和android.content.ComponentCallbacks2中的相同
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_BACKGROUND = 40;
+    public static final int TRIM_MEMORY_MODERATE = 60;
+
+    private final File mRootDirectory;
+
+    //最大缓存大小，开启自适应容量后会根据剩余存储空间动态调整，修改时需要持有mLock
+    private volatile long mMaxCacheSizeInBytes;
+
+    //单个缓存允许的最大大小，单位是bytes，0表示没有设置，此时和最大缓存大小相同(开启自适应容量时随之变化)
+    private volatile long mMaxEntrySizeInBytes;
+
+    private final float DEFAULT_LOAD_FACTOR = 0.9f;
+
+    //固定的缓存最多占用最大缓存大小的比例，超过时拒绝固定，避免缓存被无法淘汰的数据占满
+    private static final float MAX_PINNED_FRACTION = 0.5f;
+
+    private final SafeKeyGenerator mSafeKeyGenerator;
+
+    //保存cache信息的map
+    //使用LinkHashMap的目的是为了实现LRU算法，最后一个参数accessOrder一定要为true
+    private final Map<String, CacheInfo> mCacheInfoMap =
+            new LinkedHashMap<String, CacheInfo>(16, .75f, true);
+
+    //缓存总共占用的空间大小，单位是bytes
+    private long mTotalSize;
+
+    //固定(pinned)的缓存占用的空间大小，单位是bytes
+    private long mPinnedSize;
+
+    //按tag分组的cache信息，用于按tag批量清除以及按tag的空间配额淘汰，不需要扫描目录
+    private final Map<String, TagGroup> mTagGroups = new HashMap<>();
+
+    //每个tag允许占用的最大空间，单位是bytes
+    private final Map<String, Long> mTagQuotas = new HashMap<>();
+
+    //按优先级分组的未固定(pinned)的cache信息，每组内部按照访问顺序排列
+    //淘汰时从低优先级的组开始，每次直接取组内最久未使用的数据，不需要遍历mCacheInfoMap
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Map<String, CacheInfo>[] mPriorityGroups = new Map[Entry.PRIORITY_HIGH + 1];
+
+    {
+        for (int i = 0; i < mPriorityGroups.length; i++) {
+            mPriorityGroups[i] = new LinkedHashMap<String, CacheInfo>(16, .75f, true);
+        }
+    }
+
+    private final Object mLock = new Object();
+    private boolean mInitialized = false;
+
+    //开启持久化写入时，用于合并多个put的sync操作，为null表示不保证落盘
+    private volatile GroupCommitter mGroupCommitter;
+
+    //后台任务线程，用于自适应容量的定时采样和后台淘汰
+    private ScheduledExecutorService mBackgroundExecutor;
+
+    //mBackgroundExecutor是否由调用方通过setBackgroundExecutor设置，只有这种情况下初始化才在其中执行
+    private boolean mCustomBackgroundExecutor;
+
+    private ScheduledFuture<?> mAdaptiveCapacityFuture;
+
+    //自适应容量的参数，mAdaptiveCapacityEnabled为false表示没有开启，修改时需要持有mLock
+    private boolean mAdaptiveCapacityEnabled;
+    private float mAdaptiveFreeSpaceFraction;
+    private long mAdaptiveMinSize;
+    private long mAdaptiveMaxSize;
+
+    //上次采样时缓存可以使用的空间(剩余空间 + 已缓存大小)，只有这个值变小时才缩小缓存上限，-1表示还没有采样
+    private long mLastAvailableSpace = -1;
+
+    //启动预热的记录时长，0表示不开启启动预热
+    private long mWarmupWindowMillis;
+
+    //初始化完成后mWarmupWindowMillis时间内get到的key，按访问顺序保存，下次启动时预读
+    private final Set<String> mWarmupKeys = new LinkedHashSet<>();
+
+    private long mWarmupDeadline;
+
+    //读写和淘汰的统计信息，修改时需要持有mLock
+    private final Stats mStats = new Stats();
+
+    //缓存变化的监听，按key或者key的前缀注册
+    private final List<ListenerRegistration> mListeners = new CopyOnWriteArrayList<>();
+
+    //按顺序在单独的线程中回调监听，不阻塞缓存的读写
+    private ExecutorService mNotifyExecutor;
+
+    //调用close之后为true，不再接受后台任务和回调，修改时需要持有mLock
+    private boolean mClosed;
+
+
+    /**
+     * @param rootDirectory       缓存目录
+     * @param maxCacheSizeInBytes 最大缓存大小
+     * @param keyHasher           key转换为文件名的方式，缓存目录中已有其他方式命名的文件时，初始化时会重命名
+     */
+    public DiskDataCacher(File rootDirectory, long maxCacheSizeInBytes, KeyHasher keyHasher) {
+        mRootDirectory = rootDirectory;
+        mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+        mSafeKeyGenerator = new SafeKeyGenerator(keyHasher);
+    }
+
+    public DiskDataCacher(File rootDirectory, long maxCacheSizeInBytes) {
+        this(rootDirectory, maxCacheSizeInBytes, KeyHasher.SHA256);
+    }
+
+    public DiskDataCacher(File rootDirectory) {
+        this(rootDirectory, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    /**
+     * 设置日志输出，默认只将错误输出到System.err，需要调试日志时设置自己的CacheLogger，Android上可以转发到android.util.Log
+     */
+    public static void setLogger(CacheLogger logger) {
+        CacheLog.setLogger(logger);
+    }
+
+    /**
+     * 设置单个缓存允许的最大大小，超过此大小的数据不会被缓存
+     *
+     * @param maxEntrySizeInBytes 单个缓存的最大大小，单位是bytes，不能超过最大缓存大小，小于等于0表示和最大缓存大小相同
+     */
+    public void setMaxEntrySize(long maxEntrySizeInBytes) {
+        mMaxEntrySizeInBytes = Math.max(maxEntrySizeInBytes, 0);
+    }
+
+    //单个缓存实际允许的最大大小，没有设置时跟随当前的最大缓存大小
+    private long getMaxEntrySize() {
+        long maxEntrySize = mMaxEntrySizeInBytes;
+        long maxCacheSize = mMaxCacheSizeInBytes;
+        return maxEntrySize > 0 ? Math.min(maxEntrySize, maxCacheSize) : maxCacheSize;
+    }
+
+    public long getMaxSize() {
+        return mMaxCacheSizeInBytes;
+    }
+
+    //当前缓存总共占用的空间大小，单位是bytes
+    public long getTotalSize() {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            return mTotalSize;
+        }
+    }
+
+    //固定的缓存占用的空间大小，单位是bytes，最多为最大缓存大小的一半
+    public long getPinnedSize() {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            return mPinnedSize;
+        }
+    }
+
+    /**
+     * 开启自适应容量，定时采样缓存目录所在分区的剩余空间，根据剩余空间调整最大缓存大小
+     * 第一次采样直接调整到目标大小，并且不小于已缓存的大小；之后剩余空间充足时逐步增大缓存上限，
+     * 剩余空间减少时立即缩小缓存上限并在后台淘汰数据
+     * 在initialize之前调用时，初始化过程中就会完成第一次采样，重启后不会先按构造方法中的大小淘汰数据
+     *
+     * @param freeSpaceFraction    缓存最多占用(剩余空间 + 已缓存大小)的比例，取值(0, 1]
+     * @param minSizeInBytes       最大缓存大小的下限
+     * @param maxSizeInBytes       最大缓存大小的上限
+     * @param sampleIntervalMillis 采样间隔，单位是毫秒
+     */
+    public void enableAdaptiveCapacity(float freeSpaceFraction, long minSizeInBytes,
+                                       long maxSizeInBytes, long sampleIntervalMillis) {
+        if (freeSpaceFraction <= 0 || freeSpaceFraction > 1 || minSizeInBytes > maxSizeInBytes) {
+            throw new IllegalArgumentException("invalid adaptive capacity params");
+        }
+        synchronized (mLock) {
+            if (mAdaptiveCapacityFuture != null) {
+                mAdaptiveCapacityFuture.cancel(false);
+            }
+            mAdaptiveCapacityEnabled = true;
+            mAdaptiveFreeSpaceFraction = freeSpaceFraction;
+            mAdaptiveMinSize = minSizeInBytes;
+            mAdaptiveMaxSize = maxSizeInBytes;
+            mLastAvailableSpace = -1;
+            mAdaptiveCapacityFuture = getBackgroundExecutorLocked().scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    adjustCapacity();
+                }
+            }, 0, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void disableAdaptiveCapacity() {
+        synchronized (mLock) {
+            if (mAdaptiveCapacityFuture != null) {
+                mAdaptiveCapacityFuture.cancel(false);
+                mAdaptiveCapacityFuture = null;
+            }
+            mAdaptiveCapacityEnabled = false;
+        }
+    }
+
+    private void adjustCapacity() {
+        long usableSpace = getUsableSpace();
+        synchronized (mLock) {
+            //后台任务不能等待初始化，初始化可能排在同一个线程池的后面，等待会导致死锁；初始化过程中会完成第一次采样
+            if (!mInitialized) {
+                return;
+            }
+            adjustCapacityLocked(usableSpace);
+        }
+    }
+
+    //缓存目录所在分区的剩余空间
+    long getUsableSpace() {
+        return mRootDirectory.getUsableSpace();
+    }
+
+    private void adjustCapacityLocked(long usableSpace) {
+        if (!mAdaptiveCapacityEnabled || usableSpace <= 0) {   //目录不存在或者无法获取时不做调整
+            return;
+        }
+        //已经缓存的数据占用的空间也是缓存可以使用的空间
+        long availableSpace = usableSpace + mTotalSize;
+        long target = (long) (availableSpace * (double) mAdaptiveFreeSpaceFraction);
+        target = Math.max(mAdaptiveMinSize, Math.min(mAdaptiveMaxSize, target));
+        long current = mMaxCacheSizeInBytes;
+        long next = current;
+        if (mLastAvailableSpace < 0) {
+            //第一次采样直接调整到目标大小，并且不小于已缓存的大小，避免重启后淘汰上次增长的缓存
+            next = Math.max(target, Math.min(mTotalSize, mAdaptiveMaxSize));
+        } else if (target > current) {
+            //增大时每次只增加一半的差值，避免剩余空间短暂波动导致缓存迅速膨胀
+            next = current + Math.max((target - current) / 2, 1);
+        } else if (target < current && availableSpace < mLastAvailableSpace) {
+            //只有剩余空间确实减少时才缩小
+            next = target;
+        }
+        mLastAvailableSpace = availableSpace;
+        if (next == current) {
+            return;
+        }
+        mMaxCacheSizeInBytes = next;
+        Log("adjustCapacity usableSpace = " + usableSpace + " maxCacheSize " + current + " -> " + next);
+        if (mTotalSize > mMaxCacheSizeInBytes) {
+            trimToMaxSize(0);
+        }
+    }
+
+    /**
+     * 响应系统的内存压力，释放内存中的缓存(目前只有key到文件名的映射缓存)
+     *
+     * @param level TRIM_MEMORY_*，取值和android.content.ComponentCallbacks2中的相同，可以直接传入
+     */
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE
+                || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            mSafeKeyGenerator.clearMemory();
+        } else if (level >= TRIM_MEMORY_BACKGROUND
+                || level == TRIM_MEMORY_RUNNING_LOW) {
+            mSafeKeyGenerator.trimMemory();
+        }
+    }
+
+    /**
+     * 设置后台任务(初始化、自适应容量采样、预取、warmup记录)使用的线程池，需要在initialize()和其他后台任务之前调用
+     * 不设置时初始化在单独的线程中执行，其他后台任务使用内部创建的daemon线程；外部传入的线程池由调用方负责关闭
+     */
+    public void setBackgroundExecutor(ScheduledExecutorService executor) {
+        synchronized (mLock) {
+            mBackgroundExecutor = executor;
+            mCustomBackgroundExecutor = executor != null;
+        }
+    }
+
+    private ScheduledExecutorService getBackgroundExecutorLocked() {
+        if (mClosed) {
+            throw new IllegalStateException("DiskDataCacher is closed");
+        }
+        if (mBackgroundExecutor == null) {
+            mBackgroundExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "DiskDataCacher-background");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mBackgroundExecutor;
+    }
+
+    /**
+     * 关闭缓存：停止自适应容量的采样，关闭内部创建的后台线程和回调线程，并移除所有监听
+     * 通过setBackgroundExecutor传入的线程池由调用方负责关闭，不会在这里关闭
+     * 关闭后依然可以同步读写缓存，但不再执行后台任务和回调，缓存文件保留在磁盘上
+     */
+    @Override
+    public void close() {
+        synchronized (mLock) {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            if (mAdaptiveCapacityFuture != null) {
+                mAdaptiveCapacityFuture.cancel(false);
+                mAdaptiveCapacityFuture = null;
+            }
+            mAdaptiveCapacityEnabled = false;
+            if (mBackgroundExecutor != null && !mCustomBackgroundExecutor) {
+                //正在执行的预读和warmup记录会执行完成
+                mBackgroundExecutor.shutdown();
+            }
+            if (mNotifyExecutor != null) {
+                mNotifyExecutor.shutdown();
+                mNotifyExecutor = null;
+            }
+            mListeners.clear();
+        }
+        Log("DiskDataCacher closed");
+    }
+
+    //获取统计信息的快照
+    public Stats getStats() {
+        synchronized (mLock) {
+            return mStats.copy();
+        }
+    }
+
+    /**
+     * 设置是否保证put返回时数据已经落盘
+     * 开启后，没有其他sync在执行时put直接sync；sync执行期间到达的多个线程的put会合并为一组统一sync，组内重复的文件和目录只sync一次
+     * 新创建的缓存文件还会sync所在的目录(平台不支持时只sync文件)
+     * sync失败时put、putIfMatch和append抛出CommitFailedException，此时数据已经写入但不保证落盘
+     *
+     * @param durable true 开启持久化写入
+     */
+    public void setDurableWrite(boolean durable) {
+        mGroupCommitter = durable ? new GroupCommitter() : null;
+    }
+
+    /**
+     * 开启启动预热，需要在initialize之前调用
+     * 记录初始化完成后windowMillis时间内读取的key，下次初始化完成后在后台预读这些key对应的缓存文件
+     *
+     * @param windowMillis 记录的时长，单位是毫秒
+     */
+    public void enableLearnedWarmup(long windowMillis) {
+        synchronized (mLock) {
+            mWarmupWindowMillis = windowMillis;
+        }
+    }
+
+    /**
+     * 在后台线程中预读keys对应的缓存文件，使文件内容进入系统的page cache，之后的get不需要再等待磁盘读取
+     * 预读不会改变LRU顺序
+     *
+     * @param keys 即将读取的key
+     */
+    public void prefetch(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        final List<String> keyList = new ArrayList<>(keys);
+        synchronized (mLock) {
+            if (mClosed) {
+                return;
+            }
+            getBackgroundExecutorLocked().execute(new Runnable() {
+                @Override
+                public void run() {
+                    prefetchFiles(keyList);
+                }
+            });
+        }
+    }
+
+    private void prefetchFiles(List<String> keys) {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        for (String key : keys) {
+            File file = getFileForKey(key);
+            FileInputStream is = null;
+            try {
+                is = new FileInputStream(file);
+                while (is.read(buffer) != -1) {
+                    //只读取不保存，数据会保留在系统的page cache中
+                }
+            } catch (IOException e) {
+                //文件不存在或者已经被删除，忽略即可
+            } finally {
+                if (is != null) {
+                    try {
+                        is.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        Log("prefetch finish, count = " + keys.size());
+    }
+
+    //初始化完成后，预读上次启动记录的key，并开始记录本次启动访问的key
+    private void startWarmupLocked() {
+        if (mWarmupWindowMillis <= 0 || mClosed) {
+            return;
+        }
+        final File warmupFile = new File(mRootDirectory, WARMUP_FILE_NAME);
+        List<String> keys = readWarmupKeys(warmupFile);
+        if (!keys.isEmpty()) {
+            prefetch(keys);
+        }
+        mWarmupDeadline = System.currentTimeMillis() + mWarmupWindowMillis;
+        getBackgroundExecutorLocked().schedule(new Runnable() {
+            @Override
+            public void run() {
+                List<String> recordedKeys;
+                synchronized (mLock) {
+                    recordedKeys = new ArrayList<>(mWarmupKeys);
+                    mWarmupKeys.clear();
+                }
+                writeWarmupKeys(warmupFile, recordedKeys);
+            }
+        }, mWarmupWindowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordWarmupKeyLocked(String key) {
+        if (mWarmupDeadline > 0 && mWarmupKeys.size() < MAX_WARMUP_KEYS
+                && System.currentTimeMillis() < mWarmupDeadline) {
+            mWarmupKeys.add(key);
+        }
+    }
+
+    private List<String> readWarmupKeys(File warmupFile) {
+        List<String> keys = new ArrayList<>();
+        if (!warmupFile.exists()) {
+            return keys;
+        }
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(warmupFile));
+            long count = StreamUtils.readLong(is);
+            for (long i = 0; i < count && i < MAX_WARMUP_KEYS; i++) {
+                keys.add(StreamUtils.readString(is));
+            }
+        } catch (IOException e) {
+            CacheLog.e(TAG, " read warmup keys exception " + e.getMessage());
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return keys;
+    }
+
+    private void writeWarmupKeys(File warmupFile, List<String> keys) {
+        OutputStream os = null;
+        try {
+            os = new BufferedOutputStream(new FileOutputStream(warmupFile));
+            StreamUtils.writeLong(os, keys.size());
+            for (String key : keys) {
+                StreamUtils.writeString(os, key);
+            }
+            Log("write warmup keys finish, count = " + keys.size());
+        } catch (IOException e) {
+            CacheLog.e(TAG, " write warmup keys exception " + e.getMessage());
+            warmupFile.delete();
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    //初始化保存cacheInfoMap
+    @Override
+    public void initialize() {
+        Runnable task = new Runnable() {
+            public void run() {
+                initDataFromDisk();
+            }
+        };
+        synchronized (mLock) {
+            if (mCustomBackgroundExecutor) {
+                mBackgroundExecutor.execute(task);
+                return;
+            }
+        }
+        new Thread(task, "DiskDataCacher-init").start();
+    }
+
+    private void initDataFromDisk() {
+        if (!mRootDirectory.exists()) {
+            if (!mRootDirectory.mkdirs()) {
+                throw new IllegalArgumentException("Unable to create cache dir" + mRootDirectory.getAbsolutePath());
+            }
+        }
+        synchronized (mLock) {
+            if (mInitialized) {
+                return;
+            }
+        }
+
+        //先存到list中进行排序，然后再存到mCacheInfoMap中
+        List<CacheInfoWithModifiedTime> cacheInfoSortList = null;
+
+        try {
+            File[] fileList = mRootDirectory.listFiles();
+            if (fileList == null || fileList.length == 0) {
+                return;
+            }
+
+            cacheInfoSortList = new ArrayList<>(fileList.length);
+
+            for (File file : fileList) {
+                if (file == null || !file.exists() || WARMUP_FILE_NAME.equals(file.getName())) {
+                    continue;
+                }
+                if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                    file.delete();
+                    continue;
+                }
+                BufferedInputStream fis = null;
+                try {
+                    fis = new BufferedInputStream(new FileInputStream(file));
+                    CacheInfo info = CacheInfo.readCacheInfo(fis);
+                    info.size = file.length();
+                    //初始化时，遇到过期的数据，需要清除掉
+                    if (info.isExpiredCache()) {
+                        file.delete();
+                        continue;
+                    }
+                    long fileLastModifiedTime = file.lastModified();
+                    //文件名和当前的KeyHasher不一致(比如从SHA256切换到MURMUR3_128)，重命名为新的文件名
+                    String safeName = getFileSafeNameForKey(info.key);
+                    if (!file.getName().equals(safeName)) {
+                        File newFile = new File(mRootDirectory, safeName);
+                        if (newFile.exists() || !file.renameTo(newFile)) {
+                            Log("initialize, rename file failed, delete it, file is " + file.getName() + " key = " + info.key);
+                            file.delete();
+                            continue;
+                        }
+                    }
+                    CacheInfoWithModifiedTime infoWithModifiedTime = new CacheInfoWithModifiedTime(info, fileLastModifiedTime);
+                    cacheInfoSortList.add(infoWithModifiedTime);
+                } catch (Exception e) {
+                    CacheLog.e(TAG, " initialize exception " + e.getMessage());
+                    file.delete();
+                    e.printStackTrace();
+                } finally {
+                    if (fis != null) {
+                        try {
+                            fis.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (cacheInfoSortList != null && cacheInfoSortList.size() != 0) {
+                //对文件中取到的CacheInfo按照时间排序，用以实现最近最少原则
+                Collections.sort(cacheInfoSortList, new FileModifiedTimeComparator());
+                for (CacheInfoWithModifiedTime infoWithModifiedTime : cacheInfoSortList) {
+                    putCacheInfo(infoWithModifiedTime.info.key, infoWithModifiedTime.info);
+                }
+            }
+            Log("DiskCache initialize finish !!!!");
+            synchronized (mLock) {
+                //在初始化完成之前完成自适应容量的第一次采样，等待初始化的put不会先按构造方法中的大小淘汰数据
+                adjustCapacityLocked(getUsableSpace());
+                mInitialized = true;
+                mLock.notifyAll();
+                startWarmupLocked();
+            }
+        }
+
+    }
+
+    //等待初始化完成再进行其他操作
+    private void awaitInitializeLocked() {
+        while (!mInitialized) {
+            try {
+                mLock.wait();
+            } catch (InterruptedException unused) {
+            }
+        }
+    }
+
+    private class FileModifiedTimeComparator implements Comparator<CacheInfoWithModifiedTime> {
+        @Override
+        public int compare(CacheInfoWithModifiedTime o1, CacheInfoWithModifiedTime o2) {
+            if (o1.lastModifiedTime < o2.lastModifiedTime) {
+                return -1;
+            } else if (o1.lastModifiedTime > o2.lastModifiedTime) {
+                return 1;
+            } else {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public Entry get(String key) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            mStats.getCount++;
+            CacheInfo info = mCacheInfoMap.get(key);
+            File cachedFile = getFileForKey(key);
+            //缓存文件不存在
+            if (!cachedFile.exists()) {
+                removeCacheInfo(key);
+                return null;
+            }
+            //缓存的数据已经过期
+            if (info != null && info.isExpiredCache()) {
+                removeCacheInfo(key);
+                cachedFile.delete();
+                notifyChangeLocked(key, OnChangeListener.EVENT_EXPIRE);
+                return null;
+            }
+            CountingInputStream cis = null;
+            try {
+                cis = new CountingInputStream(new BufferedInputStream(new FileInputStream(cachedFile)));
+                CacheInfo fileInfo = CacheInfo.readCacheInfo(cis);
+                if (!key.equals(fileInfo.key)) {
+                    //hash冲突，文件已经被另一个key的数据覆盖，当前key的缓存已经不存在，但不能删除另一个key的文件
+                    Log(" get Entry hash collision, key = " + key + " file key = " + fileInfo.key);
+                    removeCacheInfo(key);
+                    return null;
+                }
+                fileInfo.size = cachedFile.length();
+                cachedFile.setLastModified(System.currentTimeMillis());   //注意：此处的时间精度只能精确到秒，因此get时可能会丢失精度
+                Log(" get Entry and set lastModifiedTime = " + System.currentTimeMillis()+" key = "+fileInfo.key);
+                if (info == null || !info.equals(fileInfo)) {   //一般不会出现这种情况，也可以不要此处代码
+                    info = fileInfo;
+                    putCacheInfo(key, info);
+                } else {
+                    touchCacheInfo(info);
+                }
+                long dataLength = cachedFile.length() - cis.bytesRead;
+                if (dataLength > MAX_ARRAY_SIZE) {
+                    //数据本身没有问题，只是无法放到一个数组中，因此不删除缓存
+                    CacheLog.e(TAG, " get Entry failed, data is too large to read into memory, size = " + dataLength + " key = " + key);
+                    return null;
+                }
+                byte[] data = StreamUtils.streamToBytes(cis, (int) dataLength);
+                recordWarmupKeyLocked(key);
+                mStats.hitCount++;
+                return info.toCacheEntry(data);
+            } catch (Exception e) {
+                CacheLog.e(TAG, " get Entry Exception e " + e);
+                e.printStackTrace();
+                remove(key);
+            } finally {
+                if (cis != null) {
+                    try {
+                        cis.close();
+                    } catch (IOException ioe) {
+                        ioe.printStackTrace();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, Entry entry) {
+        if (StringUtils.isEmpty(key) || entry == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+        checkPriority(entry.priority);
+        if (!checkEntrySize(key, entry)) {
+            return;
+        }
+        int result;
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            result = writeEntryLocked(key, entry);
+        }
+        if (result != WRITE_FAILED) {
+            awaitCommit(key, result == WRITE_CREATED);
+        }
+    }
+
+    /**
+     * 只有当前缓存的etag和expectedEtag相同时才写入，用于和服务端重新验证数据时避免覆盖其他线程写入的新数据
+     * 和getInfo一样，没有设置etag的缓存的etag视为null，因此可以直接传入getInfo(key).etag
+     *
+     * @param expectedEtag 期望的当前etag，为null表示期望缓存不存在或者没有设置etag，需要缓存一定不存在时使用putIfAbsent
+     * @return true 写入成功
+     */
+    public boolean putIfMatch(String key, String expectedEtag, Entry entry) {
+        return putConditionally(key, false, expectedEtag, entry);
+    }
+
+    /**
+     * 只有缓存不存在或者已经过期时才写入
+     *
+     * @return true 写入成功
+     */
+    public boolean putIfAbsent(String key, Entry entry) {
+        return putConditionally(key, true, null, entry);
+    }
+
+    private boolean putConditionally(String key, boolean requireAbsent, String expectedEtag, Entry entry) {
+        if (StringUtils.isEmpty(key) || entry == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+        checkPriority(entry.priority);
+        if (!checkEntrySize(key, entry)) {
+            return false;
+        }
+        int result;
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            boolean exists = info != null && !info.isExpiredCache();
+            if (requireAbsent && exists) {
+                Log("putIfAbsent entry exists, key = " + key);
+                return false;
+            }
+            String currentEtag = exists && !StringUtils.isEmpty(info.etag) ? info.etag : null;
+            if (StringUtils.isEmpty(expectedEtag)) {
+                expectedEtag = null;
+            }
+            if (!StringUtils.equals(currentEtag, expectedEtag)) {
+                Log("putIfMatch etag not match, key = " + key + " current = " + currentEtag + " expected = " + expectedEtag);
+                return false;
+            }
+            result = writeEntryLocked(key, entry);
+        }
+        if (result == WRITE_FAILED) {
+            return false;
+        }
+        awaitCommit(key, result == WRITE_CREATED);
+        return true;
+    }
+
+    private boolean checkEntrySize(String key, Entry entry) {
+        return checkEntrySize(key, entry.data.length);
+    }
+
+    /**
+     * 固定的缓存不会被淘汰，检查再固定size大小的数据后是否超过最大缓存大小的MAX_PINNED_FRACTION
+     * key已经是固定的缓存时，会被替换的部分不重复计算
+     */
+    private boolean checkPinnedSizeLocked(String key, long size) {
+        CacheInfo info = mCacheInfoMap.get(key);
+        long replacedSize = info != null && info.pinned ? info.size : 0;
+        long maxPinnedSize = (long) (mMaxCacheSizeInBytes * (double) MAX_PINNED_FRACTION);
+        if (mPinnedSize - replacedSize + size > maxPinnedSize) {
+            CacheLog.e(TAG, " pin ignored, pinned size " + mPinnedSize + " + " + size + " exceeds " + maxPinnedSize + " key = " + key);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean checkEntrySize(String key, long dataLength) {
+        long maxEntrySize = getMaxEntrySize();
+        if (dataLength > maxEntrySize) {
+            CacheLog.e(TAG, " put Entry ignored, data size " + dataLength + " exceeds max entry size " + maxEntrySize + " key = " + key);
+            return false;
+        }
+        return true;
+    }
+
+    //返回WRITE_FAILED、WRITE_UPDATED或者WRITE_CREATED(新创建了文件，持久化写入时需要sync目录)
+    private int writeEntryLocked(String key, Entry entry) {
+        if (entry.pinned && !checkPinnedSizeLocked(key, entry.data.length)) {
+            return WRITE_FAILED;
+        }
+        trimToMaxSize(entry.data.length);
+        trimTagToQuota(entry.tag, entry.data.length);
+        File file = getFileForKey(key);
+        releaseCollidingFileLocked(key, file);
+        BufferedOutputStream fos = null;
+        try {
+            Log("start DiskCache put " + file.getAbsolutePath());
+            boolean created = !file.exists();
+            fos = new BufferedOutputStream(new FileOutputStream(file));
+            CacheInfo info = new CacheInfo(key, entry);  //创建CacheInfo
+            boolean success = info.writeCacheInfo(fos);   //将CacheInfo信息写入到文件前面
+            if (!success) {
+                CacheLog.e(TAG, "Failed to write CacheInfo for " + file.getAbsolutePath());
+                return WRITE_FAILED;
+            }
+            fos.write(entry.data);   //将data数据写入到文件后面
+            fos.flush();
+            info.size = file.length();   //和初始化时一样，使用文件大小(包含文件头)计算占用空间
+            file.setLastModified(System.currentTimeMillis());
+            Log( " put Entry and set lastModifiedTime = " + System.currentTimeMillis()+" key = "+info.key);
+            putCacheInfo(key, info);  //保存CachInfo到map中
+            notifyChangeLocked(key, OnChangeListener.EVENT_PUT);
+            mStats.putCount++;
+            mStats.bytesWritten += info.size;
+            return created ? WRITE_CREATED : WRITE_UPDATED;
+        } catch (Exception e) {
+            boolean deleted = file.delete();
+            e.printStackTrace();
+            return WRITE_FAILED;
+        } finally {
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入文件之前检查文件是否属于另一个key(hash冲突)，是的话先移除另一个key的CacheInfo，
+     * 避免重复计算缓存大小，以及之后淘汰另一个key时误删当前key的文件
+     * 这样mCacheInfoMap中的每个key都对应自己的文件，read、getInfo和contains不需要再读取文件头校验key
+     */
+    private void releaseCollidingFileLocked(String key, File file) {
+        //key已经在map中说明文件属于当前key；文件不存在时不会冲突
+        if (mCacheInfoMap.containsKey(key) || !file.exists()) {
+            return;
+        }
+        String fileKey = readFileKey(file);
+        if (fileKey != null && !fileKey.equals(key) && mCacheInfoMap.containsKey(fileKey)) {
+            Log("hash collision, key = " + key + " replaces file key = " + fileKey);
+            removeCacheInfo(fileKey);
+            notifyChangeLocked(fileKey, OnChangeListener.EVENT_EVICT);
+        }
+    }
+
+    //读取文件头中保存的key，文件不存在或者已经损坏时返回null
+    private static String readFileKey(File file) {
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(file));
+            return CacheInfo.readCacheInfo(is).key;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    //在锁外等待落盘，其他线程的put可以同时写入并加入同一组sync
+    private void awaitCommit(String key, boolean created) {
+        GroupCommitter committer = mGroupCommitter;
+        if (committer == null) {
+            return;
+        }
+        File file = getFileForKey(key);
+        try {
+            committer.commit(file, created);
+        } catch (IOException e) {
+            CacheLog.e(TAG, " put Entry sync failed, file is " + file.getAbsolutePath() + " key = " + key + " e " + e);
+            throw new CommitFailedException("sync failed, key = " + key, e);
+        }
+    }
+
+    /**
+     * 读取缓存数据中从offset开始的一段数据，只读取需要的部分，适用于只需要读取大文件的头部或者某一段的情况
+     *
+     * @param offset 数据中的起始位置，不包含文件头
+     * @param length 最多读取的长度
+     * @return 读取到的数据，offset超过数据长度时返回空数组；缓存不存在或者已经过期时返回null
+     */
+    public byte[] read(String key, long offset, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length < 0");
+        }
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            if (info == null) {
+                return null;
+            }
+            //按数据的实际长度截断之后再分配，调用者传入很大的length(比如读取到末尾)时不会分配过多内存
+            long remaining = info.size - info.headerLength() - offset;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, remaining)));
+            int count = read(key, offset, buffer);
+            if (count < 0) {
+                return null;
+            }
+            byte[] data = new byte[count];
+            buffer.flip();
+            buffer.get(data);
+            return data;
+        }
+    }
+
+    /**
+     * 使用FileChannel从数据的offset位置开始读取，直到dst写满或者读到数据末尾
+     *
+     * @param offset 数据中的起始位置，不包含文件头
+     * @param dst    读取到的数据写入到dst中
+     * @return 读取的字节数，缓存不存在或者已经过期时返回-1
+     */
+    public int read(String key, long offset, ByteBuffer dst) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset < 0");
+        }
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            if (info == null) {
+                return -1;
+            }
+            if (info.isExpiredCache()) {
+                deleteEntryLocked(key, OnChangeListener.EVENT_EXPIRE);
+                return -1;
+            }
+            touchCacheInfo(info);
+            File file = getFileForKey(key);
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel();
+                //跳过文件头，直接定位到需要的位置
+                long position = info.headerLength() + offset;
+                int total = 0;
+                while (dst.hasRemaining()) {
+                    int count = channel.read(dst, position + total);
+                    if (count < 0) {
+                        break;
+                    }
+                    total += count;
+                }
+                file.setLastModified(System.currentTimeMillis());
+                return total;
+            } catch (IOException e) {
+                CacheLog.e(TAG, " read range Exception e " + e + " key = " + key);
+                deleteEntryLocked(key, OnChangeListener.EVENT_REMOVE);
+                return -1;
+            } finally {
+                if (raf != null) {
+                    try {
+                        raf.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 在已有缓存数据的末尾追加数据，不重写已有的数据，适用于逐步增长的缓存，比如边下载边缓存
+     *
+     * @return 缓存不存在、已经过期或者超过单个缓存的最大大小时返回false
+     */
+    public boolean append(String key, byte[] data) {
+        if (StringUtils.isEmpty(key) || data == null) {
+            throw new NullPointerException("key == null || data == null");
+        }
+        File file = getFileForKey(key);
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);   //get之后成为最新的数据，淘汰时最后才会被删除
+            if (info == null) {
+                return false;
+            }
+            touchCacheInfo(info);
+            if (info.isExpiredCache()) {
+                deleteEntryLocked(key, OnChangeListener.EVENT_EXPIRE);
+                return false;
+            }
+            long maxEntrySize = getMaxEntrySize();
+            if (info.size - info.headerLength() + data.length > maxEntrySize) {
+                CacheLog.e(TAG, " append ignored, size exceeds max entry size " + maxEntrySize + " key = " + key);
+                return false;
+            }
+            if (info.pinned && !checkPinnedSizeLocked(key, info.size + data.length)) {
+                return false;
+            }
+            trimToMaxSize(data.length);
+            trimTagToQuota(info.tag, data.length);
+            if (mCacheInfoMap.get(key) != info) {   //空间不足时自己也被淘汰了
+                return false;
+            }
+            FileOutputStream fos = null;
+            try {
+                fos = new FileOutputStream(file, true);
+                fos.write(data);
+                fos.flush();
+                file.setLastModified(System.currentTimeMillis());   //设置时间为了初始化时排序
+                mTotalSize += data.length;
+                info.size += data.length;
+                if (info.pinned) {
+                    mPinnedSize += data.length;
+                }
+                TagGroup group = StringUtils.isEmpty(info.tag) ? null : mTagGroups.get(info.tag);
+                if (group != null) {
+                    group.size += data.length;
+                }
+                mStats.bytesWritten += data.length;
+                notifyChangeLocked(key, OnChangeListener.EVENT_PUT);
+            } catch (IOException e) {
+                CacheLog.e(TAG, " append Exception e " + e + " key = " + key);
+                deleteEntryLocked(key, OnChangeListener.EVENT_REMOVE);
+                return false;
+            } finally {
+                if (fos != null) {
+                    try {
+                        fos.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        awaitCommit(key, false);
+        return true;
+    }
+
+    /**
+     * 固定缓存，固定的缓存在超过最大缓存大小或者tag配额时不会被淘汰，但过期后依然会被删除
+     * 固定的缓存最多占用最大缓存大小的一半，超过时不会固定
+     *
+     * @return 缓存不存在、已经过期或者超过固定缓存的大小限制时返回false
+     */
+    public boolean setPinned(String key, boolean pinned) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            return info != null && updateFlagsLocked(key, info, info.priority, pinned);
+        }
+    }
+
+    /**
+     * 修改缓存的优先级，淘汰时先删除低优先级的数据
+     *
+     * @param priority Entry.PRIORITY_LOW、PRIORITY_NORMAL或者PRIORITY_HIGH
+     * @return 缓存不存在或者已经过期时返回false
+     */
+    public boolean setPriority(String key, int priority) {
+        checkPriority(priority);
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            return info != null && updateFlagsLocked(key, info, priority, info.pinned);
+        }
+    }
+
+    private boolean updateFlagsLocked(String key, CacheInfo info, int priority, boolean pinned) {
+        if (info.isExpiredCache()) {
+            deleteEntryLocked(key, OnChangeListener.EVENT_EXPIRE);
+            return false;
+        }
+        if (info.priority == priority && info.pinned == pinned) {
+            touchCacheInfo(info);
+            return true;
+        }
+        if (pinned && !info.pinned && !checkPinnedSizeLocked(key, info.size)) {
+            return false;
+        }
+        if (info.headerVersion < 3) {
+            //旧版本的文件头中没有priority和pinned，需要重写文件头
+            return rewriteHeaderLocked(key, info, priority, pinned);
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(getFileForKey(key), "rw");
+            //priority和pinned在文件头中的位置是固定的，直接覆盖这4个字节
+            raf.seek(info.flagsOffset());
+            int flags = CacheInfo.toFlags(priority, pinned);
+            raf.write(new byte[]{(byte) flags, (byte) (flags >>> 8), (byte) (flags >>> 16), (byte) (flags >>> 24)});
+            unindexCacheInfo(info);
+            info.priority = priority;
+            info.pinned = pinned;
+            indexCacheInfo(info);
+            Log("updateFlags key = " + key + " priority = " + priority + " pinned = " + pinned);
+            return true;
+        } catch (IOException e) {
+            CacheLog.e(TAG, " updateFlags Exception e " + e);
+            deleteEntryLocked(key, OnChangeListener.EVENT_REMOVE);
+            return false;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 将旧版本文件头的缓存文件复制为新版本文件头的临时文件，数据部分原样复制，然后替换原文件
+     * 不经过get和put，不影响统计信息和warmup记录，不触发淘汰，也不发送EVENT_PUT
+     */
+    private boolean rewriteHeaderLocked(String key, CacheInfo info, int priority, boolean pinned) {
+        File file = getFileForKey(key);
+        File tempFile = new File(mRootDirectory, file.getName() + TEMP_FILE_SUFFIX);
+        CacheInfo newInfo = info.withFlags(priority, pinned);
+        InputStream is = null;
+        OutputStream os = null;
+        boolean success = false;
+        try {
+            long dataLength = file.length() - info.headerLength();
+            is = new BufferedInputStream(new FileInputStream(file), COPY_BUFFER_SIZE);
+            os = new BufferedOutputStream(new FileOutputStream(tempFile), COPY_BUFFER_SIZE);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            StreamUtils.skip(is, info.headerLength(), buffer);
+            if (!newInfo.writeCacheInfo(os)) {
+                return false;
+            }
+            StreamUtils.copy(is, os, dataLength, buffer);
+            os.flush();
+            success = true;
+        } catch (IOException e) {
+            CacheLog.e(TAG, " rewriteHeader Exception e " + e + " key = " + key);
+            return false;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (!success) {
+                tempFile.delete();
+            }
+        }
+        if (!tempFile.renameTo(file)) {
+            CacheLog.e(TAG, " rewriteHeader rename failed, key = " + key);
+            tempFile.delete();
+            return false;
+        }
+        newInfo.size = file.length();
+        removeCacheInfo(key);
+        putCacheInfo(key, newInfo);
+        Log("rewriteHeader key = " + key + " priority = " + priority + " pinned = " + pinned);
+        return true;
+    }
+
+    private static void checkPriority(int priority) {
+        if (priority < Entry.PRIORITY_LOW || priority > Entry.PRIORITY_HIGH) {
+            throw new IllegalArgumentException("invalid priority " + priority);
+        }
+    }
+
+    /**
+     * 判断key对应的缓存是否存在并且没有过期，只查询内存中的mCacheInfoMap，不读取文件
+     */
+    public boolean contains(String key) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            return info != null && !info.isExpiredCache();
+        }
+    }
+
+    /**
+     * 获取缓存的大小、有效期和etag等信息，只查询内存中的mCacheInfoMap，不读取缓存数据，视为一次访问
+     *
+     * @return 缓存不存在或者已经过期时返回null
+     */
+    public EntryInfo getInfo(String key) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            if (info == null) {
+                return null;
+            }
+            if (info.isExpiredCache()) {
+                deleteEntryLocked(key, OnChangeListener.EVENT_EXPIRE);
+                return null;
+            }
+            touchCacheInfo(info);
+            return info.toEntryInfo();
+        }
+    }
+
+    /**
+     * 只修改缓存的有效期，不重写缓存数据，比如服务端返回304时延长缓存的有效期
+     *
+     * @param newValidTimestamp 新的有效期时间戳，0表示一直有效
+     * @return 缓存不存在或者已经过期时返回false
+     */
+    public boolean touch(String key, long newValidTimestamp) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            CacheInfo info = mCacheInfoMap.get(key);
+            if (info == null) {
+                return false;
+            }
+            if (info.isExpiredCache()) {
+                deleteEntryLocked(key, OnChangeListener.EVENT_EXPIRE);
+                return false;
+            }
+            File file = getFileForKey(key);
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "rw");
+                //validTimestamp在文件头中的位置是固定的，直接覆盖这8个字节
+                raf.seek(info.validTimestampOffset());
+                byte[] bytes = new byte[8];
+                for (int i = 0; i < 8; i++) {
+                    bytes[i] = (byte) (newValidTimestamp >>> (i * 8));
+                }
+                raf.write(bytes);
+                info.validTimestamp = newValidTimestamp;
+                Log("touch key = " + key + " validTimestamp = " + newValidTimestamp);
+                return true;
+            } catch (IOException e) {
+                CacheLog.e(TAG, " touch Exception e " + e);
+                deleteEntryLocked(key, OnChangeListener.EVENT_REMOVE);
+                return false;
+            } finally {
+                if (raf != null) {
+                    try {
+                        raf.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 根据当前保存文件大小，判断是否超过最大值  超过的话 先全部删除过期数据  再根据LRU算法删除最早最不常用的数据
+     *
+     * @param neededSpace 需要保存的大小
+     */
+    private void trimToMaxSize(long neededSpace) {
+        if (mTotalSize + neededSpace < mMaxCacheSizeInBytes) {
+            return;
+        }
+        //全部是固定的数据时没有可以淘汰的数据，不需要每次都遍历mCacheInfoMap查找过期数据，过期的数据在访问时删除
+        if (!hasUnpinnedLocked()) {
+            return;
+        }
+        //先删除全部过期数据  再根据Lru算法删除数据
+        Iterator<Map.Entry<String, CacheInfo>> iterator = mCacheInfoMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheInfo> entry = iterator.next();
+            String key = entry.getKey();
+            CacheInfo info = entry.getValue();
+            if (info.isExpiredCache()) {
+                File file = getFileForKey(key);
+                boolean deleted = file.delete();
+                Log("trimToSize expired file key= " + key + "  file name=" + file.getName());
+                if (deleted) {
+                    mTotalSize -= info.size;
+                } else {
+                    CacheLog.e(TAG, " trimToSize, deleted expired file failed file path is " + file.getAbsolutePath() + " key is " + key);
+                }
+                iterator.remove();
+                unindexCacheInfo(info);
+                notifyChangeLocked(key, OnChangeListener.EVENT_EXPIRE);
+                mStats.expiredFileCount++;
+            }
+        }
+        if (mTotalSize + neededSpace <= mMaxCacheSizeInBytes) {
+            return;
+        }
+        //从低优先级开始，每个优先级内按LRU删除，固定(pinned)的数据不会被删除
+        int evictedCount = 0;
+        long targetSize = (long) (mMaxCacheSizeInBytes * (double) DEFAULT_LOAD_FACTOR);
+        for (int priority = Entry.PRIORITY_LOW; priority <= Entry.PRIORITY_HIGH; priority++) {
+            Map<String, CacheInfo> group = mPriorityGroups[priority];
+            while (!group.isEmpty() && mTotalSize + neededSpace >= targetSize) {
+                CacheInfo info = group.values().iterator().next();
+                String key = info.key;
+                File file = getFileForKey(key);
+                boolean deleted = file.delete();
+                Log("trimToSize delete lru file key= " + key + "  file name" + file.getName() + " priority=" + priority + " mTotalSize=" + mTotalSize + " info.size=" + info.size);
+                if (deleted) {
+                    mTotalSize -= info.size;
+                } else {
+                    CacheLog.e(TAG, " trimToSize, deleted file failed file path is " + file.getAbsolutePath() + " key is " + key);
+                }
+                mCacheInfoMap.remove(key);
+                unindexCacheInfo(info);
+                notifyChangeLocked(key, OnChangeListener.EVENT_EVICT);
+                evictedCount++;
+            }
+        }
+        //只统计真正删除了文件的淘汰，比如全部数据都被固定时不计数
+        if (evictedCount > 0) {
+            mStats.evictionCount++;
+            mStats.evictedFileCount += evictedCount;
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            boolean existed = mCacheInfoMap.containsKey(key);
+            removeCacheInfo(key);
+            File file = getFileForKey(key);
+            //key不在map中时，文件可能属于hash冲突的另一个key，不能删除
+            if (!existed && file.exists()) {
+                String fileKey = readFileKey(file);
+                if (fileKey != null && !fileKey.equals(key) && mCacheInfoMap.containsKey(fileKey)) {
+                    return;
+                }
+            }
+            if (file != null) {
+                boolean deleted = file.delete();
+                if (!deleted) {
+                    Log("remove key, delete file failed, file is " + file.getName() + " key = " + key);
+                }
+                existed |= deleted;
+            }
+            if (existed) {
+                notifyChangeLocked(key, OnChangeListener.EVENT_REMOVE);
+            }
+        }
+    }
+
+    /**
+     * 删除所有以prefix开头的key对应的缓存，直接从内存中的mCacheInfoMap查找，不需要扫描缓存目录
+     *
+     * @param prefix key的前缀，比如某个用户的数据都以"user_123/"开头
+     * @return 删除的缓存个数
+     */
+    public int removeByPrefix(String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException("prefix == null");
+        }
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            List<String> keys = new ArrayList<>();
+            for (String key : mCacheInfoMap.keySet()) {
+                if (key.startsWith(prefix)) {
+                    keys.add(key);
+                }
+            }
+            for (String key : keys) {
+                deleteEntryLocked(key, OnChangeListener.EVENT_REMOVE);
+            }
+            Log("removeByPrefix prefix = " + prefix + " removed count = " + keys.size());
+            return keys.size();
+        }
+    }
+
+    /**
+     * 删除某个tag下的所有缓存
+     *
+     * @param tag put时Entry中设置的tag
+     * @return 删除的缓存个数
+     */
+    public int invalidateTag(String tag) {
+        if (StringUtils.isEmpty(tag)) {
+            return 0;
+        }
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            TagGroup group = mTagGroups.get(tag);
+            if (group == null) {
+                return 0;
+            }
+            List<String> keys = new ArrayList<>(group.infos.keySet());
+            for (String key : keys) {
+                deleteEntryLocked(key, OnChangeListener.EVENT_REMOVE);
+            }
+            Log("invalidateTag tag = " + tag + " removed count = " + keys.size());
+            return keys.size();
+        }
+    }
+
+    /**
+     * 设置某个tag最多允许占用的空间，超过时在put时先按LRU淘汰该tag下的数据
+     *
+     * @param tag        tag
+     * @param maxSizeInBytes 最大空间，小于等于0表示取消限制
+     */
+    public void setTagQuota(String tag, long maxSizeInBytes) {
+        if (StringUtils.isEmpty(tag)) {
+            throw new IllegalArgumentException("tag is empty");
+        }
+        synchronized (mLock) {
+            if (maxSizeInBytes > 0) {
+                mTagQuotas.put(tag, maxSizeInBytes);
+            } else {
+                mTagQuotas.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * 获取某个tag下所有缓存占用的空间
+     */
+    public long getTagSize(String tag) {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            TagGroup group = mTagGroups.get(tag);
+            return group == null ? 0 : group.size;
+        }
+    }
+
+    //put时如果tag设置了配额，先按LRU淘汰该tag下最久未使用的数据
+    private void trimTagToQuota(String tag, long neededSpace) {
+        if (StringUtils.isEmpty(tag)) {
+            return;
+        }
+        Long quota = mTagQuotas.get(tag);
+        TagGroup group = mTagGroups.get(tag);
+        if (quota == null || group == null) {
+            return;
+        }
+        if (group.size + neededSpace <= quota) {
+            return;
+        }
+        //先找出需要删除的数据再删除，固定(pinned)的数据不会被删除
+        List<String> keys = new ArrayList<>();
+        long size = group.size;
+        for (CacheInfo info : group.infos.values()) {
+            if (size + neededSpace <= quota) {
+                break;
+            }
+            if (!info.pinned) {
+                keys.add(info.key);
+                size -= info.size;
+            }
+        }
+        for (String key : keys) {
+            Log("trimTagToQuota delete lru file key= " + key + " tag = " + tag + " tagSize=" + group.size);
+            deleteEntryLocked(key, OnChangeListener.EVENT_EVICT);
+        }
+        if (!keys.isEmpty()) {
+            mStats.evictionCount++;
+            mStats.evictedFileCount += keys.size();
+        }
+    }
+
+    private void deleteEntryLocked(String key, int event) {
+        removeCacheInfo(key);
+        notifyChangeLocked(key, event);
+        File file = getFileForKey(key);
+        boolean deleted = file.delete();
+        if (!deleted) {
+            Log("delete file failed, file is " + file.getName() + " key = " + key);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            if (!mListeners.isEmpty()) {
+                for (String key : mCacheInfoMap.keySet()) {
+                    notifyChangeLocked(key, OnChangeListener.EVENT_REMOVE);
+                }
+            }
+            mCacheInfoMap.clear();
+            mTagGroups.clear();
+            for (Map<String, CacheInfo> group : mPriorityGroups) {
+                group.clear();
+            }
+            mTotalSize = 0;
+            mPinnedSize = 0;
+        }
+        File[] fileList = mRootDirectory.listFiles();
+        if (fileList != null && fileList.length > 0) {
+            for (File file : fileList) {
+                if (file != null) {
+                    boolean deleted = file.delete();
+                    if (!deleted) {
+                        Log("do clear, delete file failed, file is " + file.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 将当前所有未过期的缓存按LRU顺序(最久未使用的在前)导出到一个快照文件中，用于预热新安装或者被清空的缓存
+     * 导出过程中会持有锁，其他线程的读写需要等待导出完成
+     *
+     * @param snapshotFile 快照文件
+     * @return 导出的缓存个数
+     */
+    public int exportSnapshot(File snapshotFile) throws IOException {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            BufferedOutputStream os = null;
+            int count = 0;
+            boolean success = false;
+            try {
+                os = new BufferedOutputStream(new FileOutputStream(snapshotFile), COPY_BUFFER_SIZE);
+                StreamUtils.writeLong(os, SNAPSHOT_MAGIC);
+                StreamUtils.writeLong(os, mCacheInfoMap.size());
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                //遍历entrySet不会改变LinkedHashMap的访问顺序
+                for (Map.Entry<String, CacheInfo> entry : mCacheInfoMap.entrySet()) {
+                    if (entry.getValue().isExpiredCache()) {
+                        continue;
+                    }
+                    File file = getFileForKey(entry.getKey());
+                    long length = file.length();
+                    if (length <= 0) {
+                        continue;
+                    }
+                    //每条记录：记录标记、key、文件长度、包含CacheInfo文件头的完整文件内容
+                    os.write(1);
+                    StreamUtils.writeString(os, entry.getKey());
+                    StreamUtils.writeLong(os, length);
+                    InputStream is = new FileInputStream(file);
+                    try {
+                        StreamUtils.copy(is, os, length, buffer);
+                    } finally {
+                        is.close();
+                    }
+                    count++;
+                }
+                os.write(0);   //结束标记
+                os.flush();
+                success = true;
+                Log("exportSnapshot finish, count = " + count + " file = " + snapshotFile.getAbsolutePath());
+                return count;
+            } finally {
+                if (os != null) {
+                    try {
+                        os.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                if (!success) {
+                    snapshotFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * 从快照文件中导入缓存，顺序读取快照文件，一次性重建缓存文件和mCacheInfoMap，比逐个调用put快很多
+     * 导入的缓存按快照中的LRU顺序排在已有缓存之后，磁盘上的修改时间也会按这个顺序重新设置，重启后LRU顺序不变
+     * 过期、key不匹配或者超过单个缓存最大大小的数据会被跳过，
+     * 和put一样，超过最大缓存大小或者tag配额时按LRU淘汰
+     *
+     * @param snapshotFile exportSnapshot导出的快照文件
+     * @return 导入的缓存个数
+     */
+    public int importSnapshot(File snapshotFile) throws IOException {
+        synchronized (mLock) {
+            awaitInitializeLocked();
+            InputStream is = null;
+            int count = 0;
+            try {
+                is = new BufferedInputStream(new FileInputStream(snapshotFile), COPY_BUFFER_SIZE);
+                if (StreamUtils.readLong(is) != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a cache snapshot file " + snapshotFile.getAbsolutePath());
+                }
+                long total = StreamUtils.readLong(is);
+                //已有缓存和导入的缓存按内存中的LRU顺序设置递增的修改时间，保证重启后初始化排序得到相同的LRU顺序(修改时间只精确到秒)
+                long baseModifiedTime = System.currentTimeMillis() - (mCacheInfoMap.size() + total) * 1000;
+                int index = 0;
+                for (String key : mCacheInfoMap.keySet()) {
+                    getFileForKey(key).setLastModified(baseModifiedTime + index * 1000L);
+                    index++;
+                }
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                while (StreamUtils.read(is) != 0) {
+                    String key = StreamUtils.readString(is);
+                    long length = StreamUtils.readLong(is);
+                    index++;
+                    if (importEntryLocked(key, is, length, buffer, baseModifiedTime + index * 1000L)) {
+                        count++;
+                    }
+                }
+                Log("importSnapshot finish, count = " + count + " file = " + snapshotFile.getAbsolutePath());
+                return count;
+            } finally {
+                if (is != null) {
+                    try {
+                        is.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean importEntryLocked(String key, InputStream is, long length, byte[] buffer, long modifiedTime) throws IOException {
+        //先解析文件头，确认记录有效之后才写入缓存文件，无效的记录直接跳过，不会覆盖key已有的缓存
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        CountingInputStream cis = new CountingInputStream(new CopyingInputStream(is, header));
+        CacheInfo info = CacheInfo.readCacheInfo(cis);
+        long dataLength = length - cis.bytesRead;
+        if (dataLength < 0) {
+            throw new IOException("Corrupted snapshot record, key = " + key);
+        }
+        if (!key.equals(info.key) || info.isExpiredCache() || !checkEntrySize(key, dataLength)
+                || (info.pinned && !checkPinnedSizeLocked(key, length))) {
+            StreamUtils.skip(is, dataLength, buffer);
+            return false;
+        }
+        trimToMaxSize(length);
+        trimTagToQuota(info.tag, length);
+        File file = getFileForKey(key);
+        releaseCollidingFileLocked(key, file);
+        OutputStream fos = new BufferedOutputStream(new FileOutputStream(file), COPY_BUFFER_SIZE);
+        boolean success = false;
+        try {
+            header.writeTo(fos);
+            StreamUtils.copy(is, fos, dataLength, buffer);
+            fos.flush();
+            success = true;
+        } finally {
+            try {
+                fos.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (!success) {
+                //key已有的缓存文件已经被覆盖了一部分，只能一起删除
+                removeCacheInfo(key);
+                file.delete();
+            }
+        }
+        info.size = length;
+        file.setLastModified(modifiedTime);
+        putCacheInfo(key, info);
+        notifyChangeLocked(key, OnChangeListener.EVENT_PUT);
+        return true;
+    }
+
+    /**
+     * 监听某个key的变化
+     */
+    public void addOnChangeListener(String key, OnChangeListener listener) {
+        addListenerRegistration(key, false, listener);
+    }
+
+    /**
+     * 监听所有以prefix开头的key的变化，prefix为空字符串时监听所有key
+     */
+    public void addOnChangeListenerForPrefix(String prefix, OnChangeListener listener) {
+        addListenerRegistration(prefix, true, listener);
+    }
+
+    //移除listener的所有注册
+    public void removeOnChangeListener(OnChangeListener listener) {
+        for (ListenerRegistration registration : mListeners) {
+            if (registration.listener == listener) {
+                mListeners.remove(registration);
+            }
+        }
+    }
+
+    private void addListenerRegistration(String keyOrPrefix, boolean prefix, OnChangeListener listener) {
+        if (keyOrPrefix == null || listener == null) {
+            throw new NullPointerException("key == null || listener == null");
+        }
+        mListeners.add(new ListenerRegistration(keyOrPrefix, prefix, listener));
+    }
+
+    private void notifyChangeLocked(final String key, final int event) {
+        if (mListeners.isEmpty() || mClosed) {
+            return;
+        }
+        if (mNotifyExecutor == null) {
+            mNotifyExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "DiskDataCacher-notify");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        mNotifyExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (ListenerRegistration registration : mListeners) {
+                    if (!registration.matches(key)) {
+                        continue;
+                    }
+                    try {
+                        registration.listener.onCacheChanged(key, event);
+                    } catch (RuntimeException e) {
+                        CacheLog.e(TAG, " OnChangeListener exception key = " + key + " e " + e);
+                    }
+                }
+            }
+        });
+    }
+
+    private void putCacheInfo(String key, CacheInfo info) {
+        CacheInfo previousInfo = mCacheInfoMap.get(key);
+        long previousSize = 0;
+        long newSize = info.size;
+        if (previousInfo != null) {
+            previousSize = previousInfo.size;
+        }
+        mTotalSize += (newSize - previousSize);
+        mCacheInfoMap.put(key, info);
+        if (previousInfo != null) {
+            unindexCacheInfo(previousInfo);
+        }
+        indexCacheInfo(info);
+    }
+
+    private void removeCacheInfo(String key) {
+        CacheInfo info = mCacheInfoMap.get(key);
+        if (info != null) {
+            mTotalSize -= info.size;
+            mCacheInfoMap.remove(key);
+            unindexCacheInfo(info);
+        }
+    }
+
+    private boolean hasUnpinnedLocked() {
+        for (Map<String, CacheInfo> group : mPriorityGroups) {
+            if (!group.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void indexCacheInfo(CacheInfo info) {
+        if (info.pinned) {
+            mPinnedSize += info.size;
+        } else {
+            mPriorityGroups[info.priority].put(info.key, info);
+        }
+        if (StringUtils.isEmpty(info.tag)) {
+            return;
+        }
+        TagGroup group = mTagGroups.get(info.tag);
+        if (group == null) {
+            group = new TagGroup();
+            mTagGroups.put(info.tag, group);
+        }
+        group.infos.put(info.key, info);
+        group.size += info.size;
+    }
+
+    private void unindexCacheInfo(CacheInfo info) {
+        if (info.pinned) {
+            mPinnedSize -= info.size;
+        } else {
+            mPriorityGroups[info.priority].remove(info.key);
+        }
+        if (StringUtils.isEmpty(info.tag)) {
+            return;
+        }
+        TagGroup group = mTagGroups.get(info.tag);
+        if (group != null && group.infos.remove(info.key) != null) {
+            group.size -= info.size;
+            if (group.infos.isEmpty()) {
+                mTagGroups.remove(info.tag);
+            }
+        }
+    }
+
+    //get时同步更新优先级分组和tag分组内的访问顺序
+    private void touchCacheInfo(CacheInfo info) {
+        if (!info.pinned) {
+            mPriorityGroups[info.priority].get(info.key);
+        }
+        if (StringUtils.isEmpty(info.tag)) {
+            return;
+        }
+        TagGroup group = mTagGroups.get(info.tag);
+        if (group != null) {
+            group.infos.get(info.key);
+        }
+    }
+
+    public File getFileForKey(String key) {
+        return new File(mRootDirectory, getFileSafeNameForKey(key));
+    }
+
+    /**
+     * 直接使用key来做文件名不可行，因为key中可能存在不能命名文件的字符，因此需要转换
+     * 另外一种编码方式是使用MD5编码，参考：http://blog.csdn.net/guolin_blog/article/details/28863651
+     **/
+    private String getFileSafeNameForKey(String key) {
+        String safeKey = mSafeKeyGenerator.getSafeKey(key);
+        return safeKey;
+    }
+
+    /**
+     * 缓存的统计信息
+     */
+    public static class Stats {
+
+        public long getCount;
+
+        public long hitCount;
+
+        public long putCount;
+
+        //put写入的字节数，包含文件头
+        public long bytesWritten;
+
+        //超过最大缓存大小或者tag配额时执行淘汰的次数
+        public long evictionCount;
+
+        //淘汰删除的文件个数
+        public long evictedFileCount;
+
+        //过期删除的文件个数
+        public long expiredFileCount;
+
+        Stats copy() {
+            Stats stats = new Stats();
+            stats.getCount = getCount;
+            stats.hitCount = hitCount;
+            stats.putCount = putCount;
+            stats.bytesWritten = bytesWritten;
+            stats.evictionCount = evictionCount;
+            stats.evictedFileCount = evictedFileCount;
+            stats.expiredFileCount = expiredFileCount;
+            return stats;
+        }
+    }
+
+    /**
+     * 开启持久化写入时sync失败，数据已经写入缓存文件，但不保证已经落盘
+     */
+    public static class CommitFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CommitFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * 缓存变化的监听，在单独的线程中按发生顺序回调，需要更新UI时请自行切换到主线程
+     */
+    public interface OnChangeListener {
+
+        int EVENT_PUT = 1;
+
+        int EVENT_REMOVE = 2;
+
+        //缓存过期被删除
+        int EVENT_EXPIRE = 3;
+
+        //超过最大缓存大小或者tag配额被淘汰
+        int EVENT_EVICT = 4;
+
+        void onCacheChanged(String key, int event);
+    }
+
+    private static class ListenerRegistration {
+        final String keyOrPrefix;
+        final boolean prefix;
+        final OnChangeListener listener;
+
+        ListenerRegistration(String keyOrPrefix, boolean prefix, OnChangeListener listener) {
+            this.keyOrPrefix = keyOrPrefix;
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+
+        boolean matches(String key) {
+            return prefix ? key.startsWith(keyOrPrefix) : key.equals(keyOrPrefix);
+        }
+    }
+
+    static class CacheInfoWithModifiedTime {
+        public long lastModifiedTime;
+        public CacheInfo info;
+
+        public CacheInfoWithModifiedTime(CacheInfo info, long lastModifiedTime) {
+            this.info = info;
+            this.lastModifiedTime = lastModifiedTime;
+        }
+    }
+
+    /**
+     * 同一个tag下的cache信息，infos同样按照访问顺序排列，用于tag内部的LRU淘汰
+     */
+    static class TagGroup {
+        final Map<String, CacheInfo> infos = new LinkedHashMap<String, CacheInfo>(16, .75f, true);
+        long size;
+    }
+
+    /**
+     * 保存cache信息，包括大小size，有效期validTimestamp，键值key和命名空间tag
+     * 与Entry不同的是，Entry保存持有的是存到文件中的数据，比较大，因为不能用Map缓存
+     */
+    static class CacheInfo {
+
+        //文件头以HEADER_MAGIC和版本号开头，旧版本的文件头直接以validTimestamp开头，
+        //validTimestamp不会是负数，因此可以和带最高位的HEADER_MAGIC区分开
+        static final long HEADER_MAGIC = 0xD15CCAC4E0DA0000L;
+        static final long HEADER_MAGIC_MASK = 0xFFFFFFFFFFFF0000L;
+        static final int HEADER_VERSION = 3;
+
+        private static final int FLAG_PRIORITY_MASK = 0xFF;
+        private static final int FLAG_PINNED = 0x100;
+
+        //缓存的大小
+        public long size;
+
+        //有效期的时间戳, 0表示未设置有效时间
+        public long validTimestamp;
+
+        //键值
+        public String key;
+
+        //命名空间，空字符串表示没有设置
+        public String tag;
+
+        //数据的版本，比如服务端返回的ETag，空字符串表示没有设置
+        public String etag;
+
+        //淘汰时的优先级
+        public int priority = Entry.PRIORITY_NORMAL;
+
+        //固定的缓存不会被淘汰
+        public boolean pinned;
+
+        //文件头的版本，0表示旧版本的文件头
+        public int headerVersion;
+
+        private CacheInfo() {
+        }
+
+        public CacheInfo(String key, Entry entry) {
+            this.key = key;
+            this.size = entry.data.length;
+            this.validTimestamp = entry.validTimestamp;
+            this.tag = entry.tag == null ? "" : entry.tag;
+            this.etag = entry.etag == null ? "" : entry.etag;
+            this.priority = entry.priority;
+            this.pinned = entry.pinned;
+            this.headerVersion = HEADER_VERSION;
+        }
+
+        public EntryInfo toEntryInfo() {
+            EntryInfo entryInfo = new EntryInfo();
+            entryInfo.size = size - headerLength();
+            entryInfo.validTimestamp = validTimestamp;
+            entryInfo.tag = StringUtils.isEmpty(tag) ? null : tag;
+            entryInfo.etag = StringUtils.isEmpty(etag) ? null : etag;
+            entryInfo.priority = priority;
+            entryInfo.pinned = pinned;
+            return entryInfo;
+        }
+
+        //文件头的长度，也就是数据在文件中的起始位置
+        public long headerLength() {
+            if (headerVersion == 0) {
+                return 8 + 8 + key.getBytes().length;
+            }
+            long length = 8 + 8 + 8 + key.getBytes().length + 8 + tag.getBytes().length;
+            if (headerVersion >= 2) {
+                length += 8 + etag.getBytes().length;
+            }
+            if (headerVersion >= 3) {
+                length += 4;
+            }
+            return length;
+        }
+
+        //priority和pinned在文件中的位置，只有第3版及之后的文件头才有
+        public long flagsOffset() {
+            return 8 + 8;
+        }
+
+        static int toFlags(int priority, boolean pinned) {
+            return (priority & FLAG_PRIORITY_MASK) | (pinned ? FLAG_PINNED : 0);
+        }
+
+        //validTimestamp在文件中的位置，旧版本的文件头validTimestamp在最前面
+        public long validTimestampOffset() {
+            return headerVersion == 0 ? 0 : 8;
+        }
+
+        //复制一个修改了priority和pinned的CacheInfo，使用当前版本的文件头
+        CacheInfo withFlags(int priority, boolean pinned) {
+            CacheInfo info = new CacheInfo();
+            info.size = size;
+            info.validTimestamp = validTimestamp;
+            info.key = key;
+            info.tag = tag;
+            info.etag = etag;
+            info.priority = priority;
+            info.pinned = pinned;
+            info.headerVersion = HEADER_VERSION;
+            return info;
+        }
+
+        //根据CacheInfo创建一个Entry
+        public Entry toCacheEntry(byte[] data) {
+            Entry e = new Entry();
+            e.data = data;
+            e.validTimestamp = validTimestamp;
+            e.tag = StringUtils.isEmpty(tag) ? null : tag;
+            e.etag = StringUtils.isEmpty(etag) ? null : etag;
+            e.priority = priority;
+            e.pinned = pinned;
+            return e;
+        }
+
+        /**
+         * 从数据流中读取cache信息
+         *
+         * @param is
+         * @return
+         * @throws IOException
+         */
+        public static CacheInfo readCacheInfo(InputStream is) throws IOException {
+            CacheInfo infoEntry = new CacheInfo();
+            long first = StreamUtils.readLong(is);
+            if ((first & HEADER_MAGIC_MASK) != HEADER_MAGIC) {
+                //旧版本的文件头，第一个字段就是validTimestamp
+                infoEntry.validTimestamp = first;
+                infoEntry.key = StreamUtils.readString(is);
+                infoEntry.tag = "";
+                infoEntry.etag = "";
+                return infoEntry;
+            }
+            int version = (int) (first & ~HEADER_MAGIC_MASK);
+            if (version < 1 || version > HEADER_VERSION) {
+                throw new IOException("Unsupported cache header version " + version);
+            }
+            infoEntry.headerVersion = version;
+            infoEntry.validTimestamp = StreamUtils.readLong(is);
+            if (version >= 3) {
+                int flags = StreamUtils.readInt(is);
+                infoEntry.priority = Math.min(flags & FLAG_PRIORITY_MASK, Entry.PRIORITY_HIGH);
+                infoEntry.pinned = (flags & FLAG_PINNED) != 0;
+            }
+            infoEntry.key = StreamUtils.readString(is);
+            infoEntry.tag = StreamUtils.readString(is);
+            infoEntry.etag = version >= 2 ? StreamUtils.readString(is) : "";
+            return infoEntry;
+        }
+
+        public boolean writeCacheInfo(OutputStream os) {
+            try {
+                StreamUtils.writeLong(os, HEADER_MAGIC | HEADER_VERSION);
+                StreamUtils.writeLong(os, validTimestamp);
+                StreamUtils.writeInt(os, toFlags(priority, pinned));
+                StreamUtils.writeString(os, key == null ? "" : key);
+                StreamUtils.writeString(os, tag == null ? "" : tag);
+                StreamUtils.writeString(os, etag == null ? "" : etag);
+                return true;
+            } catch (IOException e) {
+                CacheLog.e(TAG, e.toString(), e);
+                return false;
+            } finally {
+                try {
+                    os.flush();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * 判断当前cache文件是否过期
+         *
+         * @return true 过期
+         */
+        public boolean isExpiredCache() {
+            return validTimestamp < System.currentTimeMillis() && validTimestamp > 0;
+        }
+
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheInfo)) {
+                return false;
+            }
+            CacheInfo info = (CacheInfo) obj;
+            if (size == info.size && validTimestamp == info.validTimestamp && key != null && key.equals(info.key)
+                    && StringUtils.equals(tag, info.tag) && StringUtils.equals(etag, info.etag)
+                    && priority == info.priority && pinned == info.pinned) {
+                return true;
+            }
+            return false;
+        }
+    }
+
+    //替代android.text.TextUtils，使本模块不依赖Android
+    static class StringUtils {
+        static boolean isEmpty(CharSequence str) {
+            return str == null || str.length() == 0;
+        }
+
+        static boolean equals(CharSequence a, CharSequence b) {
+            if (a == b) {
+                return true;
+            }
+            if (a != null && b != null && a.length() == b.length()) {
+                return a.toString().equals(b.toString());
+            }
+            return false;
+        }
+    }
+
+    static class StreamUtils {
+        static int read(InputStream is) throws IOException {
+            int b = is.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        static void writeInt(OutputStream os, int n) throws IOException {
+            os.write((n >> 0) & 0xff);
+            os.write((n >> 8) & 0xff);
+            os.write((n >> 16) & 0xff);
+            os.write((n >> 24) & 0xff);
+        }
+
+        static int readInt(InputStream is) throws IOException {
+            int n = 0;
+            n |= (read(is) << 0);
+            n |= (read(is) << 8);
+            n |= (read(is) << 16);
+            n |= (read(is) << 24);
+            return n;
+        }
+
+        static void writeLong(OutputStream os, long n) throws IOException {
+            os.write((byte) (n >>> 0));
+            os.write((byte) (n >>> 8));
+            os.write((byte) (n >>> 16));
+            os.write((byte) (n >>> 24));
+            os.write((byte) (n >>> 32));
+            os.write((byte) (n >>> 40));
+            os.write((byte) (n >>> 48));
+            os.write((byte) (n >>> 56));
+        }
+
+        static long readLong(InputStream is) throws IOException {
+            long n = 0;
+            n |= ((read(is) & 0xFFL) << 0);
+            n |= ((read(is) & 0xFFL) << 8);
+            n |= ((read(is) & 0xFFL) << 16);
+            n |= ((read(is) & 0xFFL) << 24);
+            n |= ((read(is) & 0xFFL) << 32);
+            n |= ((read(is) & 0xFFL) << 40);
+            n |= ((read(is) & 0xFFL) << 48);
+            n |= ((read(is) & 0xFFL) << 56);
+            return n;
+        }
+
+        static void writeString(OutputStream os, String s) throws IOException {
+            byte[] b = s.getBytes();
+            writeLong(os, b.length);
+            os.write(b, 0, b.length);
+        }
+
+        static String readString(InputStream is) throws IOException {
+            int n = (int) readLong(is);
+            byte[] b = streamToBytes(is, n);
+            return new String(b);
+        }
+
+        public static byte[] streamToBytes(InputStream in, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int count;
+            int pos = 0;
+            while (pos < length && ((count = in.read(bytes, pos, length - pos)) != -1)) {
+                pos += count;
+            }
+            if (pos != length) {
+                throw new IOException("Expected " + length + " bytes, read " + pos + " bytes");
+            }
+            return bytes;
+        }
+
+        static void copy(InputStream in, OutputStream out, long length, byte[] buffer) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count == -1) {
+                    throw new EOFException("Expected " + length + " bytes, read " + (length - remaining) + " bytes");
+                }
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+
+        static void skip(InputStream in, long length, byte[] buffer) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count == -1) {
+                    throw new EOFException("Expected " + length + " bytes, skipped " + (length - remaining) + " bytes");
+                }
+                remaining -= count;
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long bytesRead = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                bytesRead++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int result = super.read(buffer, offset, count);
+            if (result != -1) {
+                bytesRead += result;
+            }
+            return result;
+        }
+    }
+
+    //读取数据的同时，将读到的数据写入到另一个输出流中
+    private static class CopyingInputStream extends FilterInputStream {
+        private final OutputStream out;
+
+        private CopyingInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                out.write(result);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int result = super.read(buffer, offset, count);
+            if (result != -1) {
+                out.write(buffer, offset, result);
+            }
+            return result;
+        }
+    }
+
+    private void Log(String msg) {
+        if (DEBUG) {
+            CacheLog.d(TAG, msg);
+        }
+    }
+}
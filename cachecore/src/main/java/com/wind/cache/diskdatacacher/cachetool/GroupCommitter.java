@@ -0,0 +1,169 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 组提交(group commit)的落盘工具
+ * 多个线程写完缓存文件后调用commit，没有sync在执行时，调用者立即作为leader提交当前的组，不做任何等待；
+ * sync执行期间到达的调用者进入下一组，等上一组完成后由下一组的leader统一对这一组文件执行FileChannel.force，然后同时唤醒这一组的所有调用者
+ * 同一组内重复的文件和目录只sync一次，而且sync不在DiskDataCacher的mLock中执行
+ * 新创建的文件还需要sync所在的目录，目录项才会落盘；Android 8.0以下没有java.nio.file，无法打开目录sync，只保证文件内容落盘
+ */
+class GroupCommitter {
+
+    private final Object mLock = new Object();
+
+    //保证同一时间只有一组在执行sync，sync期间到达的请求会进入下一组，从而自然形成更大的组
+    private final Object mSyncLock = new Object();
+
+    //当前正在收集的组
+    private Group mPendingGroup = new Group();
+
+    //当前平台不支持sync目录时置为true，之后不再尝试
+    private static volatile boolean sDirectorySyncUnsupported;
+
+    /**
+     * 等待file所在的组落盘完成后返回
+     *
+     * @param file    已经写完并关闭的缓存文件
+     * @param created 文件是本次新创建的，需要同时sync所在的目录
+     * @throws IOException file或者它所在的目录sync失败
+     */
+    public void commit(File file, boolean created) throws IOException {
+        Group group;
+        boolean leader = false;
+        File directory = created ? file.getParentFile() : null;
+        synchronized (mLock) {
+            group = mPendingGroup;
+            group.files.add(file);
+            if (directory != null) {
+                group.directories.add(directory);
+            }
+            if (!group.hasLeader) {
+                group.hasLeader = true;
+                leader = true;
+            }
+        }
+        if (leader) {
+            syncGroup(group);
+        } else {
+            group.awaitDone();
+        }
+        IOException error = group.errors.get(file);
+        if (error == null && directory != null) {
+            error = group.errors.get(directory);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void syncGroup(Group group) {
+        //上一组还在sync时在这里等待，等待期间到达的请求都会加入当前组
+        synchronized (mSyncLock) {
+            synchronized (mLock) {
+                //关闭当前组，之后到达的请求进入新的组
+                mPendingGroup = new Group();
+            }
+            Map<File, IOException> errors = new HashMap<>();
+            for (File file : group.files) {
+                try {
+                    syncFile(file);
+                } catch (IOException e) {
+                    errors.put(file, e);
+                }
+            }
+            for (File directory : group.directories) {
+                try {
+                    syncDirectory(directory);
+                } catch (IOException e) {
+                    errors.put(directory, e);
+                }
+            }
+            group.markDone(errors);
+        }
+    }
+
+    void syncFile(File file) throws IOException {
+        RandomAccessFile raf;
+        try {
+            //只读打开也可以force，使用"rw"打开时如果文件刚被其他线程删除会重新创建一个空文件
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            //文件已经被其他线程删除，不需要sync
+            return;
+        }
+        try {
+            raf.getChannel().force(true);
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void syncDirectory(File directory) throws IOException {
+        if (sDirectorySyncUnsupported) {
+            return;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (LinkageError e) {
+            //Android 8.0以下没有java.nio.file
+            sDirectorySyncUnsupported = true;
+            return;
+        } catch (UnsupportedOperationException e) {
+            sDirectorySyncUnsupported = true;
+            return;
+        } catch (IOException e) {
+            //部分平台(比如Windows)不允许打开目录，无法sync目录
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static class Group {
+        //使用Set去重，同一个文件在一个组内被多次写入只需要sync一次
+        final Set<File> files = new LinkedHashSet<>();
+        final Set<File> directories = new LinkedHashSet<>();
+        boolean hasLeader;
+        boolean done;
+        //sync失败的文件或者目录
+        Map<File, IOException> errors = new HashMap<>();
+
+        synchronized void markDone(Map<File, IOException> e) {
+            errors = e;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized void awaitDone() {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException unused) {
+                }
+            }
+        }
+    }
+}
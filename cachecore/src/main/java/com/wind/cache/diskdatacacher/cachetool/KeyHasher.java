@@ -0,0 +1,20 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+/**
+ * 将key转换为可以作为文件名的字符串
+ */
+public interface KeyHasher {
+
+    /**
+     * SHA-256编码后转为16进制，文件名64个字符，旧版本缓存目录使用的方式，默认使用此方式以兼容已有的缓存目录
+     */
+    KeyHasher SHA256 = new SafeKeyGenerator.Sha256Hasher();
+
+    /**
+     * 128位的MurmurHash3(非加密hash)，base32编码后文件名26个字符，计算速度比SHA-256快很多
+     * 从SHA256切换到此方式后，初始化时会将已有的缓存文件重命名，不需要清空缓存
+     */
+    KeyHasher MURMUR3_128 = new SafeKeyGenerator.Murmur3Hasher();
+
+    String hash(String key);
+}
@@ -0,0 +1,243 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 将key转换为hash编码之后的key，以便于设为文件名
+ * 不同的key转换后可能相同(hash冲突)，DiskDataCacher读取时会和文件头中保存的key比较，冲突时当做缓存不存在处理
+ */
+
+class SafeKeyGenerator {
+
+    static final String STRING_CHARSET_NAME = "UTF-8";
+    static final Charset CHARSET = Charset.forName(STRING_CHARSET_NAME);
+
+    private static final char[] HEX_CHAR_ARRAY = "0123456789abcdef".toCharArray();
+
+    //只使用小写字母和数字，在不区分大小写的文件系统上也不会冲突
+    private static final char[] BASE32_CHAR_ARRAY = "abcdefghijklmnopqrstuvwxyz234567".toCharArray();
+
+    private final KeyHasher mKeyHasher;
+
+    //只有计算较慢的hash(SHA-256)才需要缓存计算结果，快速hash直接计算比查询HashLruCache(需要加锁)更快
+    private final HashLruCache loadIdToSafeHash;
+
+    SafeKeyGenerator() {
+        this(KeyHasher.SHA256);
+    }
+
+    SafeKeyGenerator(KeyHasher keyHasher) {
+        mKeyHasher = keyHasher;
+        loadIdToSafeHash = keyHasher == KeyHasher.SHA256 ? new HashLruCache(1000) : null;
+    }
+
+    public String getSafeKey(String key) {
+        if (loadIdToSafeHash == null) {
+            return mKeyHasher.hash(key);
+        }
+        String safeKey;
+        safeKey = loadIdToSafeHash.get(key);
+        if (safeKey == null) {
+            safeKey = mKeyHasher.hash(key);
+            loadIdToSafeHash.put(key, safeKey);
+        }
+        return safeKey;
+    }
+
+    //内存不足时只保留一半的映射
+    public void trimMemory() {
+        if (loadIdToSafeHash != null) {
+            loadIdToSafeHash.trimToSize(loadIdToSafeHash.maxSize() / 2);
+        }
+    }
+
+    public void clearMemory() {
+        if (loadIdToSafeHash != null) {
+            loadIdToSafeHash.evictAll();
+        }
+    }
+
+    /**
+     * 简单的线程安全LRU缓存，替代android.util.LruCache，使本模块不依赖Android
+     */
+    static class HashLruCache {
+        private final int mMaxSize;
+        private final LinkedHashMap<String, String> mMap;
+
+        HashLruCache(final int maxSize) {
+            mMaxSize = maxSize;
+            mMap = new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > mMaxSize;
+                }
+            };
+        }
+
+        synchronized String get(String key) {
+            return mMap.get(key);
+        }
+
+        synchronized void put(String key, String value) {
+            mMap.put(key, value);
+        }
+
+        int maxSize() {
+            return mMaxSize;
+        }
+
+        synchronized void trimToSize(int maxSize) {
+            Iterator<Map.Entry<String, String>> iterator = mMap.entrySet().iterator();
+            while (mMap.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        synchronized void evictAll() {
+            mMap.clear();
+        }
+    }
+
+    static class Sha256Hasher implements KeyHasher {
+        @Override
+        public String hash(String key) {
+            try {
+                MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+                messageDigest.update(key.getBytes(CHARSET));
+                return bytesToHex(messageDigest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * MurmurHash3 x64 128位版本，参考：https://github.com/aappleby/smhasher/blob/master/src/MurmurHash3.cpp
+     */
+    static class Murmur3Hasher implements KeyHasher {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        @Override
+        public String hash(String key) {
+            byte[] data = key.getBytes(CHARSET);
+            int length = data.length;
+            long h1 = 0;
+            long h2 = 0;
+            int blocks = length / 16;
+            for (int i = 0; i < blocks; i++) {
+                long k1 = getLong(data, i * 16);
+                long k2 = getLong(data, i * 16 + 8);
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+            //处理剩余不足16字节的部分
+            int tail = blocks * 16;
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = length - tail - 1; i >= 0; i--) {
+                long b = data[tail + i] & 0xFFL;
+                if (i >= 8) {
+                    k2 |= b << ((i - 8) * 8);
+                } else {
+                    k1 |= b << (i * 8);
+                }
+            }
+            if (length - tail > 8) {
+                h2 ^= mixK2(k2);
+            }
+            if (length - tail > 0) {
+                h1 ^= mixK1(k1);
+            }
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+            return longsToBase32(h1, h2);
+        }
+
+        private static long getLong(byte[] data, int offset) {
+            long n = 0;
+            for (int i = 7; i >= 0; i--) {
+                n = (n << 8) | (data[offset + i] & 0xFFL);
+            }
+            return n;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+
+    //将128位的hash值编码为26个base32字符，每个字符5位
+    private static String longsToBase32(long high, long low) {
+        char[] chars = new char[26];
+        for (int i = 0; i < 26; i++) {
+            int bit = i * 5;
+            int v;
+            if (bit + 5 <= 64) {
+                v = (int) (high >>> (59 - bit)) & 0x1F;
+            } else if (bit >= 64) {
+                v = bit + 5 <= 128 ? (int) (low >>> (123 - bit)) & 0x1F : (int) (low << (bit + 5 - 128)) & 0x1F;
+            } else {
+                //跨越high和low的5位
+                int highBits = 64 - bit;
+                v = (int) (((high << (5 - highBits)) | (low >>> (64 - (5 - highBits)))) & 0x1F);
+            }
+            chars[i] = BASE32_CHAR_ARRAY[v];
+        }
+        return new String(chars);
+    }
+
+    // Taken from:
+    // http://stackoverflow.com/questions/9655181/convert-from-byte-array-to-hex-string-in-java/9655275#9655275
+    //copyed from Glide, com.bumptech.glide.load.engine.cache.SafeKeyGenerator
+    @SuppressWarnings("PMD.UseVarargs")
+    private static String bytesToHex(byte[] bytes) {
+        int v;
+        int length = bytes.length;
+        char[] hexChars = new char[length * 2];
+        for (int j = 0; j < length; j++) {
+            v = bytes[j] & 0xFF;
+            hexChars[j * 2] = HEX_CHAR_ARRAY[v >>> 4];
+            hexChars[j * 2 + 1] = HEX_CHAR_ARRAY[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+}
@@ -0,0 +1,659 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * DiskDataCacher在JVM上的单元测试，每个用例使用单独的临时目录
+ */
+public class DiskDataCacherTest {
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("DiskDataCacherTest", "");
+        assertTrue(mDir.delete() && mDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(mDir);
+    }
+
+    @Test
+    public void putGetAndReload() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("k", entry("hello", "t", "v1"));
+        DataCache.Entry entry = cacher.get("k");
+        assertArrayEquals("hello".getBytes(), entry.data);
+        assertEquals("t", entry.tag);
+        assertEquals("v1", entry.etag);
+
+        DiskDataCacher reloaded = newCacher(1024 * 1024);
+        assertArrayEquals("hello".getBytes(), reloaded.get("k").data);
+        assertEquals(cacher.getTotalSize(), reloaded.getTotalSize());
+        assertEquals(cacher.getTagSize("t"), reloaded.getTagSize("t"));
+    }
+
+    @Test
+    public void legacyHeaderIsReadAndTouched() throws IOException {
+        DiskDataCacher cacher = new DiskDataCacher(mDir, 1024 * 1024);
+        writeLegacyFile(cacher.getFileForKey("legacy"), "legacy", 0, "hello");
+        cacher.initialize();
+        DataCache.EntryInfo info = cacher.getInfo("legacy");
+        assertEquals(5, info.size);
+        assertNull(info.tag);
+        assertNull(info.etag);
+
+        assertTrue(cacher.touch("legacy", 4102444800000L));
+        DiskDataCacher reloaded = newCacher(1024 * 1024);
+        assertEquals(4102444800000L, reloaded.getInfo("legacy").validTimestamp);
+        assertArrayEquals("hello".getBytes(), reloaded.get("legacy").data);
+    }
+
+    @Test
+    public void legacyHeaderFlagsAreRewrittenWithoutSideEffects() throws IOException {
+        DiskDataCacher cacher = new DiskDataCacher(mDir, 1024 * 1024);
+        writeLegacyFile(cacher.getFileForKey("legacy"), "legacy", 0, "hello");
+        cacher.initialize();
+        assertTrue(cacher.setPriority("legacy", DataCache.Entry.PRIORITY_HIGH));
+        assertTrue(cacher.setPinned("legacy", true));
+        DiskDataCacher.Stats stats = cacher.getStats();
+        assertEquals(0, stats.getCount);
+        assertEquals(0, stats.putCount);
+        assertEquals(cacher.getFileForKey("legacy").length(), cacher.getTotalSize());
+
+        DiskDataCacher reloaded = newCacher(1024 * 1024);
+        DataCache.EntryInfo info = reloaded.getInfo("legacy");
+        assertEquals(DataCache.Entry.PRIORITY_HIGH, info.priority);
+        assertTrue(info.pinned);
+        assertArrayEquals("hello".getBytes(), reloaded.get("legacy").data);
+        assertEquals(1, mDir.list().length);
+    }
+
+    @Test
+    public void flagsAreRewrittenInPlace() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("k", entry("hello", null, null));
+        long size = cacher.getTotalSize();
+        assertTrue(cacher.setPinned("k", true));
+        assertTrue(cacher.setPriority("k", DataCache.Entry.PRIORITY_LOW));
+        assertEquals(size, cacher.getTotalSize());
+
+        DataCache.EntryInfo info = newCacher(1024 * 1024).getInfo("k");
+        assertTrue(info.pinned);
+        assertEquals(DataCache.Entry.PRIORITY_LOW, info.priority);
+    }
+
+    @Test
+    public void removeByPrefixRemovesOnlyMatchingKeys() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("user_1/a", entry("a", null, null));
+        cacher.put("user_1/b", entry("b", null, null));
+        cacher.put("user_12/c", entry("c", null, null));
+        cacher.put("other", entry("d", null, null));
+        assertEquals(2, cacher.removeByPrefix("user_1/"));
+        assertFalse(cacher.contains("user_1/a"));
+        assertFalse(cacher.contains("user_1/b"));
+        assertTrue(cacher.contains("user_12/c"));
+        assertTrue(cacher.contains("other"));
+        assertFalse(cacher.getFileForKey("user_1/a").exists());
+        assertEquals(1, newCacher(1024 * 1024).removeByPrefix("user_1"));
+        assertEquals(0, cacher.removeByPrefix("missing/"));
+    }
+
+    @Test
+    public void invalidateTagRemovesTaggedEntries() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("a", entry("a", "feed", null));
+        cacher.put("b", entry("b", "feed", null));
+        cacher.put("c", entry("c", "profile", null));
+        cacher.put("d", entry("d", null, null));
+        assertEquals(2, cacher.invalidateTag("feed"));
+        assertEquals(0, cacher.getTagSize("feed"));
+        assertFalse(cacher.contains("a"));
+        assertTrue(cacher.contains("c"));
+        assertTrue(cacher.contains("d"));
+        assertEquals(0, cacher.invalidateTag("feed"));
+        assertEquals(0, cacher.invalidateTag(null));
+
+        //重启后tag从文件头中恢复
+        DiskDataCacher reloaded = newCacher(1024 * 1024);
+        assertEquals(cacher.getTagSize("profile"), reloaded.getTagSize("profile"));
+        assertEquals(1, reloaded.invalidateTag("profile"));
+    }
+
+    @Test
+    public void tagQuotaEvictsLeastRecentlyUsedInTag() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("untagged", sizedEntry(100, DataCache.Entry.PRIORITY_NORMAL));
+        DataCache.Entry pinned = sizedEntry(100, DataCache.Entry.PRIORITY_NORMAL);
+        pinned.tag = "t";
+        pinned.pinned = true;
+        cacher.put("pinned", pinned);
+        cacher.setTagQuota("t", 600);
+        for (int i = 0; i < 10; i++) {
+            DataCache.Entry entry = sizedEntry(100, DataCache.Entry.PRIORITY_NORMAL);
+            entry.tag = "t";
+            cacher.put("t" + i, entry);
+            cacher.get("t0");   //t0一直在被访问，不会被淘汰
+        }
+        assertTrue(cacher.getTagSize("t") <= 600);
+        assertTrue(cacher.contains("t0"));
+        assertFalse(cacher.contains("t1"));
+        assertTrue(cacher.contains("t9"));
+        assertTrue(cacher.contains("pinned"));
+        assertTrue(cacher.contains("untagged"));
+
+        cacher.setTagQuota("t", 0);
+        DataCache.Entry entry = sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL);
+        entry.tag = "t";
+        cacher.put("large", entry);
+        assertTrue(cacher.contains("t9"));
+        assertTrue(cacher.getTagSize("t") > 600);
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws IOException {
+        File sourceDir = new File(mDir, "source");
+        DiskDataCacher source = new DiskDataCacher(sourceDir, 1024 * 1024);
+        source.initialize();
+        for (int i = 0; i < 10; i++) {
+            source.put("k" + i, entry("v" + i, i % 2 == 0 ? "even" : null, "e" + i));
+        }
+        DataCache.Entry expiring = entry("gone", null, null);
+        expiring.validTimestamp = System.currentTimeMillis() + 300;
+        source.put("expiring", expiring);
+        File snapshot = new File(mDir, "snapshot");
+        assertEquals(11, source.exportSnapshot(snapshot));
+        sleep(400);
+
+        File targetDir = new File(mDir, "target");
+        DiskDataCacher target = new DiskDataCacher(targetDir, 1024 * 1024);
+        target.initialize();
+        target.put("k0", entry("local", null, null));
+        assertEquals(10, target.importSnapshot(snapshot));
+        assertNull(target.get("expiring"));
+        assertEquals("v0", new String(target.get("k0").data));
+        assertEquals("e7", target.getInfo("k7").etag);
+        assertEquals(source.getTagSize("even"), target.getTagSize("even"));
+
+        DiskDataCacher reloaded = new DiskDataCacher(targetDir, 1024 * 1024);
+        reloaded.initialize();
+        assertEquals(target.getTotalSize(), reloaded.getTotalSize());
+    }
+
+    @Test
+    public void importedEntriesStayNewestAfterRestart() throws IOException {
+        File sourceDir = new File(mDir, "source");
+        DiskDataCacher source = new DiskDataCacher(sourceDir, 1024 * 1024);
+        source.initialize();
+        source.put("s0", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        source.put("s1", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        File snapshot = new File(mDir, "snapshot");
+        assertEquals(2, source.exportSnapshot(snapshot));
+
+        File targetDir = new File(mDir, "target");
+        DiskDataCacher target = new DiskDataCacher(targetDir, 1024 * 1024);
+        target.initialize();
+        target.put("local", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        assertEquals(2, target.importSnapshot(snapshot));
+
+        //重启后只能再放下一个缓存，淘汰的应该是导入之前已有的缓存
+        DiskDataCacher reloaded = new DiskDataCacher(targetDir, target.getTotalSize() + 500);
+        reloaded.initialize();
+        reloaded.put("new", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        assertFalse(reloaded.contains("local"));
+        assertTrue(reloaded.contains("s0"));
+        assertTrue(reloaded.contains("s1"));
+        assertTrue(reloaded.contains("new"));
+    }
+
+    @Test
+    public void invalidSnapshotRecordDoesNotReplaceExistingEntry() throws IOException {
+        File sourceDir = new File(mDir, "source");
+        DiskDataCacher source = new DiskDataCacher(sourceDir, 1024 * 1024);
+        source.initialize();
+        DataCache.Entry expiring = entry("expired payload", null, null);
+        expiring.validTimestamp = System.currentTimeMillis() + 300;
+        source.put("k", expiring);
+        File snapshot = new File(mDir, "snapshot");
+        source.exportSnapshot(snapshot);
+        sleep(400);
+
+        File targetDir = new File(mDir, "target");
+        DiskDataCacher target = new DiskDataCacher(targetDir, 1024 * 1024);
+        target.initialize();
+        target.put("k", entry("local", null, null));
+        long size = target.getTotalSize();
+        assertEquals(0, target.importSnapshot(snapshot));
+        assertEquals("local", new String(target.get("k").data));
+        assertEquals(size, target.getTotalSize());
+    }
+
+    @Test
+    public void putIfMatchComparesEtag() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        assertTrue(cacher.putIfMatch("k", null, entry("a", null, "v1")));
+        assertFalse(cacher.putIfMatch("k", "v0", entry("b", null, "v2")));
+        assertTrue(cacher.putIfMatch("k", "v1", entry("c", null, "v2")));
+        assertEquals("c", new String(cacher.get("k").data));
+        assertEquals("v2", cacher.getInfo("k").etag);
+
+        //没有etag的缓存可以直接使用getInfo返回的etag
+        cacher.put("plain", entry("a", null, null));
+        assertTrue(cacher.putIfMatch("plain", cacher.getInfo("plain").etag, entry("b", null, null)));
+
+        assertFalse(cacher.putIfAbsent("plain", entry("c", null, null)));
+        assertTrue(cacher.putIfAbsent("absent", entry("c", null, null)));
+    }
+
+    @Test
+    public void appendAndReadRanges() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        assertFalse(cacher.append("k", "x".getBytes()));
+        cacher.put("k", entry("0123456789", "t", null));
+        assertTrue(cacher.append("k", "abc".getBytes()));
+        assertEquals(13, cacher.getInfo("k").size);
+        assertEquals("0123456789abc", new String(cacher.get("k").data));
+        assertEquals("9ab", new String(cacher.read("k", 9, 3)));
+        assertEquals("bc", new String(cacher.read("k", 11, 10)));
+        assertEquals(0, cacher.read("k", 20, 4).length);
+        assertNull(cacher.read("missing", 0, 4));
+        assertEquals(cacher.getTotalSize(), cacher.getTagSize("t"));
+        assertEquals(cacher.getFileForKey("k").length(), cacher.getTotalSize());
+
+        DiskDataCacher reloaded = newCacher(1024 * 1024);
+        assertEquals("9abc", new String(reloaded.read("k", 9, 100)));
+    }
+
+    @Test
+    public void readToEndDoesNotAllocateRequestedLength() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("k", entry("0123456789", null, null));
+        //按length分配时会抛出OutOfMemoryError
+        assertEquals("56789", new String(cacher.read("k", 5, Integer.MAX_VALUE)));
+        assertEquals(0, cacher.read("k", 100, Integer.MAX_VALUE).length);
+        assertNull(cacher.read("missing", 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void appendUpdatesModifiedTime() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        cacher.put("k", entry("0123456789", null, null));
+        File file = cacher.getFileForKey("k");
+        assertTrue(file.setLastModified(1000000000000L));
+        assertTrue(cacher.append("k", "abc".getBytes()));
+        assertTrue(file.lastModified() > 1000000000000L);
+    }
+
+    @Test
+    public void evictsLowPriorityFirstAndKeepsPinned() {
+        DiskDataCacher cacher = newCacher(2000);
+        DataCache.Entry pinned = sizedEntry(100, DataCache.Entry.PRIORITY_LOW);
+        pinned.pinned = true;
+        cacher.put("pinned", pinned);
+        cacher.put("high", sizedEntry(100, DataCache.Entry.PRIORITY_HIGH));
+        for (int i = 0; i < 30; i++) {
+            cacher.put("low" + i, sizedEntry(100, DataCache.Entry.PRIORITY_LOW));
+        }
+        assertTrue(cacher.contains("pinned"));
+        assertTrue(cacher.contains("high"));
+        assertFalse(cacher.contains("low0"));
+        assertTrue(cacher.contains("low29"));
+        assertTrue(cacher.getTotalSize() <= 2000);
+        DiskDataCacher.Stats stats = cacher.getStats();
+        assertTrue(stats.evictionCount > 0);
+        assertTrue(stats.evictedFileCount >= stats.evictionCount);
+    }
+
+    @Test
+    public void pinnedSizeIsCappedAndDoesNotCountEvictions() {
+        DiskDataCacher cacher = newCacher(1000);
+        for (int i = 0; i < 15; i++) {
+            DataCache.Entry entry = sizedEntry(100, DataCache.Entry.PRIORITY_NORMAL);
+            entry.pinned = true;
+            cacher.put("pinned" + i, entry);
+        }
+        //超过最大缓存大小一半的固定缓存被拒绝，而不是淘汰已有的固定缓存
+        assertEquals(0, cacher.getStats().evictionCount);
+        assertTrue(cacher.contains("pinned0"));
+        assertFalse(cacher.contains("pinned14"));
+        assertTrue(cacher.getPinnedSize() <= 500);
+        assertEquals(cacher.getTotalSize(), cacher.getPinnedSize());
+
+        DataCache.Entry entry = sizedEntry(100, DataCache.Entry.PRIORITY_NORMAL);
+        entry.pinned = true;
+        assertFalse(cacher.putIfAbsent("pinned14", entry));
+        assertFalse(cacher.append("pinned0", new byte[400]));
+        entry.pinned = false;
+        cacher.put("unpinned", entry);
+        assertTrue(cacher.contains("unpinned"));
+        assertFalse(cacher.setPinned("unpinned", true));
+        assertTrue(cacher.setPinned("pinned0", false));
+        assertTrue(cacher.setPinned("unpinned", true));
+
+        DiskDataCacher reloaded = newCacher(1000);
+        assertEquals(cacher.getPinnedSize(), reloaded.getPinnedSize());
+    }
+
+    @Test
+    public void collidingPutReplacesOtherKey() {
+        KeyHasher firstCharHasher = new KeyHasher() {
+            @Override
+            public String hash(String key) {
+                return "f" + key.charAt(0);
+            }
+        };
+        DiskDataCacher cacher = new DiskDataCacher(mDir, 1024 * 1024, firstCharHasher);
+        cacher.initialize();
+        cacher.put("a1", entry("first", null, null));
+        cacher.put("a2", entry("second", null, null));
+        assertFalse(cacher.contains("a1"));
+        assertEquals(cacher.getFileForKey("a2").length(), cacher.getTotalSize());
+        cacher.remove("a1");
+        assertEquals("second", new String(cacher.get("a2").data));
+    }
+
+    @Test
+    public void switchingToMurmur3RenamesExistingFiles() {
+        DiskDataCacher sha256 = newCacher(1024 * 1024);
+        sha256.put("k", entry("hello", "t", "v1"));
+        File oldFile = sha256.getFileForKey("k");
+        assertEquals(KeyHasher.SHA256.hash("k"), oldFile.getName());
+        long totalSize = sha256.getTotalSize();
+
+        DiskDataCacher murmur3 = new DiskDataCacher(mDir, 1024 * 1024, KeyHasher.MURMUR3_128);
+        murmur3.initialize();
+        assertEquals(totalSize, murmur3.getTotalSize());
+        assertEquals("hello", new String(murmur3.get("k").data));
+        assertEquals("v1", murmur3.getInfo("k").etag);
+        File newFile = murmur3.getFileForKey("k");
+        assertEquals(KeyHasher.MURMUR3_128.hash("k"), newFile.getName());
+        assertTrue(newFile.exists());
+        assertFalse(oldFile.exists());
+        assertEquals(1, mDir.list().length);
+    }
+
+    @Test(timeout = 10000)
+    public void adaptiveCapacityBeforeInitializeDoesNotDeadlock() {
+        DiskDataCacher cacher = new DiskDataCacher(mDir, 1024 * 1024);
+        cacher.enableAdaptiveCapacity(0.5f, 1024, 1024 * 1024 * 1024, 60000);
+        cacher.initialize();
+        cacher.put("k", entry("v", null, null));
+        assertTrue(cacher.contains("k"));
+        cacher.disableAdaptiveCapacity();
+    }
+
+    @Test(timeout = 10000)
+    public void adaptiveCapacityKeepsGrownCacheAfterRestart() {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        for (int i = 0; i < 40; i++) {
+            cacher.put("k" + i, sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        }
+        long totalSize = cacher.getTotalSize();
+
+        //重启后构造方法中的大小远小于已缓存的大小，第一次采样在初始化过程中完成，直接调整到目标大小
+        DiskDataCacher reloaded = newAdaptiveCacher(4096, 1024 * 1024);
+        assertEquals(totalSize, reloaded.getTotalSize());   //等待初始化完成
+        assertEquals((1024 * 1024 + totalSize) / 2, reloaded.getMaxSize());
+        reloaded.put("new", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        for (int i = 0; i < 40; i++) {
+            assertTrue(reloaded.contains("k" + i));
+        }
+        assertEquals(0, reloaded.getStats().evictionCount);
+        totalSize = reloaded.getTotalSize();
+        reloaded.disableAdaptiveCapacity();
+
+        //剩余空间不足时目标大小小于已缓存的大小，第一次采样也不会低于已缓存的大小
+        DiskDataCacher lowSpace = newAdaptiveCacher(4096, 1000);
+        assertEquals(totalSize, lowSpace.getTotalSize());
+        assertEquals(lowSpace.getTotalSize(), lowSpace.getMaxSize());
+        //剩余空间没有减少时后台采样不会缩小
+        sleep(100);
+        assertEquals(lowSpace.getTotalSize(), lowSpace.getMaxSize());
+        assertTrue(lowSpace.contains("k0") && lowSpace.contains("new"));
+        lowSpace.disableAdaptiveCapacity();
+    }
+
+    @Test(timeout = 10000)
+    public void singleThreadCustomExecutorDoesNotDeadlock() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DiskDataCacher cacher = new DiskDataCacher(mDir, 1024 * 1024);
+            cacher.setBackgroundExecutor(executor);
+            cacher.enableAdaptiveCapacity(0.5f, 1024, 1024 * 1024 * 1024, 60000);
+            cacher.initialize();
+            cacher.put("k", entry("v", null, null));
+            assertTrue(cacher.contains("k"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void listenersReceiveEventsInOrder() throws InterruptedException {
+        DiskDataCacher cacher = newCacher(1024 * 1024);
+        RecordingListener listener = new RecordingListener(4);
+        cacher.addOnChangeListener("k", listener);
+        cacher.put("k", entry("v1", null, null));
+        cacher.put("other", entry("v", null, null));
+        cacher.remove("k");
+        DataCache.Entry expiring = entry("v2", null, null);
+        expiring.validTimestamp = System.currentTimeMillis() + 100;
+        cacher.put("k", expiring);
+        sleep(200);
+        assertNull(cacher.get("k"));
+        listener.await();
+        assertEquals(Arrays.asList("k:" + DiskDataCacher.OnChangeListener.EVENT_PUT,
+                "k:" + DiskDataCacher.OnChangeListener.EVENT_REMOVE,
+                "k:" + DiskDataCacher.OnChangeListener.EVENT_PUT,
+                "k:" + DiskDataCacher.OnChangeListener.EVENT_EXPIRE), listener.events);
+    }
+
+    @Test(timeout = 10000)
+    public void prefixListenerReceivesEvictionsUntilRemoved() throws InterruptedException {
+        DiskDataCacher cacher = newCacher(3000);
+        RecordingListener prefixListener = new RecordingListener(4);
+        cacher.addOnChangeListenerForPrefix("e", prefixListener);
+        cacher.put("e0", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        cacher.put("x", sizedEntry(10, DataCache.Entry.PRIORITY_NORMAL));
+        cacher.put("e1", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        //超过最大缓存大小，最久没有使用的e0被淘汰
+        cacher.put("e2", sizedEntry(1000, DataCache.Entry.PRIORITY_NORMAL));
+        prefixListener.await();
+        assertEquals(Arrays.asList("e0:" + DiskDataCacher.OnChangeListener.EVENT_PUT,
+                "e1:" + DiskDataCacher.OnChangeListener.EVENT_PUT,
+                "e0:" + DiskDataCacher.OnChangeListener.EVENT_EVICT,
+                "e2:" + DiskDataCacher.OnChangeListener.EVENT_PUT), prefixListener.events);
+
+        cacher.removeOnChangeListener(prefixListener);
+        //回调在同一个线程中按顺序执行，allListener收到事件时prefixListener也已经处理过同一个事件
+        RecordingListener allListener = new RecordingListener(1);
+        cacher.addOnChangeListenerForPrefix("", allListener);
+        cacher.remove("e1");
+        allListener.await();
+        assertEquals(4, prefixListener.events.size());
+    }
+
+    @Test(timeout = 10000)
+    public void closeStopsBackgroundWorkButKeepsCustomExecutor() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DiskDataCacher cacher = new DiskDataCacher(mDir, 1024 * 1024);
+            cacher.setBackgroundExecutor(executor);
+            cacher.enableAdaptiveCapacity(0.5f, 1024, 1024 * 1024 * 1024, 60000);
+            cacher.initialize();
+            RecordingListener listener = new RecordingListener(1);
+            cacher.addOnChangeListenerForPrefix("", listener);
+            cacher.put("k", entry("v", null, null));
+            listener.await();
+
+            cacher.close();
+            cacher.put("k2", entry("v2", null, null));
+            cacher.prefetch(Arrays.asList("k", "k2"));
+            //关闭后读写依然可用，但不再回调，调用方传入的线程池不会被关闭
+            assertEquals("v2", new String(cacher.get("k2").data));
+            assertFalse(executor.isShutdown());
+            try {
+                cacher.enableAdaptiveCapacity(0.5f, 1024, 1024 * 1024 * 1024, 60000);
+                fail("enableAdaptiveCapacity after close");
+            } catch (IllegalStateException expected) {
+            }
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(1, listener.events.size());
+            cacher.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentPutsKeepSizeConsistent() throws InterruptedException {
+        final DiskDataCacher cacher = newCacher(64 * 1024);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int index = t;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            String key = "k" + ((i * 7 + index) % 50);
+                            cacher.put(key, sizedEntry(100 + i % 500, DataCache.Entry.PRIORITY_NORMAL));
+                            cacher.get(key);
+                            if (i % 10 == 0) {
+                                cacher.remove("k" + (i % 50));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+        long fileSize = 0;
+        for (File file : mDir.listFiles()) {
+            fileSize += file.length();
+        }
+        assertEquals(fileSize, cacher.getTotalSize());
+        assertTrue(cacher.getTotalSize() <= 64 * 1024);
+    }
+
+    //按顺序记录"key:event"，收到count个事件后await返回
+    private static class RecordingListener implements DiskDataCacher.OnChangeListener {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch mLatch;
+
+        RecordingListener(int count) {
+            mLatch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onCacheChanged(String key, int event) {
+            events.add(key + ":" + event);
+            mLatch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(mLatch.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private DiskDataCacher newCacher(long maxSize) {
+        DiskDataCacher cacher = new DiskDataCacher(mDir, maxSize);
+        cacher.initialize();
+        return cacher;
+    }
+
+    //剩余空间固定为usableSpace，采样间隔足够长，只有初始化时的第一次采样生效
+    private DiskDataCacher newAdaptiveCacher(long maxSize, final long usableSpace) {
+        DiskDataCacher cacher = new DiskDataCacher(mDir, maxSize) {
+            @Override
+            long getUsableSpace() {
+                return usableSpace;
+            }
+        };
+        cacher.enableAdaptiveCapacity(0.5f, 1024, 1024 * 1024 * 1024, 60000);
+        cacher.initialize();
+        return cacher;
+    }
+
+    private static DataCache.Entry entry(String data, String tag, String etag) {
+        DataCache.Entry entry = new DataCache.Entry();
+        entry.data = data.getBytes();
+        entry.tag = tag;
+        entry.etag = etag;
+        return entry;
+    }
+
+    private static DataCache.Entry sizedEntry(int size, int priority) {
+        DataCache.Entry entry = new DataCache.Entry();
+        entry.data = new byte[size];
+        entry.priority = priority;
+        return entry;
+    }
+
+    //旧版本的文件头：validTimestamp、key，之后是数据
+    private static void writeLegacyFile(File file, String key, long validTimestamp, String data) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        DiskDataCacher.StreamUtils.writeLong(os, validTimestamp);
+        DiskDataCacher.StreamUtils.writeString(os, key);
+        os.write(data.getBytes());
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            os.writeTo(fos);
+        } finally {
+            fos.close();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,157 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * GroupCommitter的合并提交和错误传递
+ */
+public class GroupCommitterTest {
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("GroupCommitterTest", "");
+        assertTrue(mDir.delete() && mDir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+    }
+
+    @Test(timeout = 10000)
+    public void singleCommitDoesNotWait() throws IOException {
+        GroupCommitter committer = new GroupCommitter();
+        File file = newFile("a");
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            committer.commit(file, false);
+        }
+        //之前每次提交都要等待10ms的时间窗口
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+    }
+
+    @Test(timeout = 10000)
+    public void commitsArrivingDuringSyncAreMergedIntoOneGroup() throws Exception {
+        BlockingCommitter committer = new BlockingCommitter();
+        final File file = newFile("a");
+        List<Thread> threads = new ArrayList<>();
+        threads.add(commitAsync(committer, file, null));
+        assertTrue(committer.firstSyncStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            threads.add(commitAsync(committer, file, null));
+        }
+        Thread.sleep(200);   //等待后到达的请求都加入下一组
+        committer.releaseFirstSync.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        //第一组sync一次，之后的5个请求合并为一组，同一个文件只sync一次
+        assertEquals(2, committer.syncCount.get());
+    }
+
+    @Test(timeout = 10000)
+    public void errorIsReportedOnlyToTheFailedFile() throws Exception {
+        BlockingCommitter committer = new BlockingCommitter();
+        File first = newFile("first");
+        File good = newFile("good");
+        File bad = newFile("bad");
+        committer.failingFile = bad;
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        AtomicReference<Throwable> goodError = new AtomicReference<>();
+        AtomicReference<Throwable> badError = new AtomicReference<>();
+        Thread firstThread = commitAsync(committer, first, firstError);
+        assertTrue(committer.firstSyncStarted.await(5, TimeUnit.SECONDS));
+        Thread goodThread = commitAsync(committer, good, goodError);
+        Thread badThread = commitAsync(committer, bad, badError);
+        Thread.sleep(200);
+        committer.releaseFirstSync.countDown();
+        firstThread.join();
+        goodThread.join();
+        badThread.join();
+        assertNull(firstError.get());
+        assertNull(goodError.get());
+        assertTrue(badError.get() instanceof IOException);
+    }
+
+    @Test
+    public void deletedFileIsNotRecreated() throws IOException {
+        File file = new File(mDir, "deleted");
+        new GroupCommitter().commit(file, true);
+        assertFalse(file.exists());
+    }
+
+    private File newFile(String name) throws IOException {
+        File file = new File(mDir, name);
+        FileOutputStream os = new FileOutputStream(file);
+        try {
+            os.write(name.getBytes());
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    private static Thread commitAsync(final GroupCommitter committer, final File file,
+                                      final AtomicReference<Throwable> error) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    committer.commit(file, false);
+                } catch (Throwable e) {
+                    if (error != null) {
+                        error.set(e);
+                    }
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    //第一次sync阻塞到releaseFirstSync，用于让之后的请求在sync期间到达
+    private static class BlockingCommitter extends GroupCommitter {
+        final CountDownLatch firstSyncStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstSync = new CountDownLatch(1);
+        final AtomicInteger syncCount = new AtomicInteger();
+        volatile File failingFile;
+
+        @Override
+        void syncFile(File file) throws IOException {
+            if (syncCount.incrementAndGet() == 1) {
+                firstSyncStarted.countDown();
+                try {
+                    releaseFirstSync.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (file.equals(failingFile)) {
+                throw new IOException("sync failed " + file);
+            }
+            super.syncFile(file);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.wind.cache.diskdatacacher.cachetool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * KeyHasher的输出，MURMUR3_128的期望值来自MurmurHash3_x64_128(seed为0)的参考实现，再按base32编码
+ */
+public class SafeKeyGeneratorTest {
+
+    @Test
+    public void murmur3MatchesReferenceVectors() {
+        //空串、只有尾部(5字节)、两个完整块加11字节尾部(同时覆盖k1和k2)
+        assertEquals("aaaaaaaaaaaaaaaaaaaaaaaaaa", KeyHasher.MURMUR3_128.hash(""));
+        assertEquals("zpmkpm2bxwnqewy6sbverlq5de", KeyHasher.MURMUR3_128.hash("hello"));
+        assertEquals("4nf3y654a4nwy6sdhsu4jguti4",
+                KeyHasher.MURMUR3_128.hash("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    public void murmur3OutputIsFileSafe() {
+        String hash = KeyHasher.MURMUR3_128.hash("http://example.com/a?b=c&d=中文");
+        assertEquals(26, hash.length());
+        assertTrue(hash.matches("[a-z2-7]+"));
+    }
+
+    @Test
+    public void sha256IsHexDigest() {
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824",
+                KeyHasher.SHA256.hash("hello"));
+        assertEquals(KeyHasher.SHA256.hash("hello"), new SafeKeyGenerator().getSafeKey("hello"));
+    }
+}
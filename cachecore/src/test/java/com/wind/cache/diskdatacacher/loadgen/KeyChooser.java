@@ -0,0 +1,106 @@
+package com.wind.cache.diskdatacacher.loadgen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 按照配置的分布生成key的下标，每个线程一个实例
+ */
+abstract class KeyChooser {
+
+    abstract int next(Random random, int opIndex);
+
+    static KeyChooser create(Workload workload, int threadIndex, double[] zipfCdf) {
+        if (Workload.DIST_UNIFORM.equals(workload.distribution)) {
+            return new Uniform(workload.keyCount);
+        } else if (Workload.DIST_ZIPF.equals(workload.distribution)) {
+            return new Zipf(zipfCdf);
+        } else if (Workload.DIST_SCAN.equals(workload.distribution)) {
+            return new Scan(workload.keyCount, threadIndex * (workload.keyCount / Math.max(workload.threads, 1)));
+        } else if (Workload.DIST_HOTSPOT.equals(workload.distribution)) {
+            return new Hotspot(workload);
+        }
+        throw new IllegalArgumentException("Unknown distribution " + workload.distribution);
+    }
+
+    //zipf分布的累积概率，所有线程共用
+    static double[] zipfCdf(int keyCount, double skew) {
+        double[] cdf = new double[keyCount];
+        double sum = 0;
+        for (int i = 0; i < keyCount; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < keyCount; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static class Uniform extends KeyChooser {
+        private final int keyCount;
+
+        Uniform(int keyCount) {
+            this.keyCount = keyCount;
+        }
+
+        @Override
+        int next(Random random, int opIndex) {
+            return random.nextInt(keyCount);
+        }
+    }
+
+    private static class Zipf extends KeyChooser {
+        private final double[] cdf;
+
+        Zipf(double[] cdf) {
+            this.cdf = cdf;
+        }
+
+        @Override
+        int next(Random random, int opIndex) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return index >= 0 ? index : Math.min(-index - 1, cdf.length - 1);
+        }
+    }
+
+    //顺序扫描全部key，不同线程从不同的位置开始
+    private static class Scan extends KeyChooser {
+        private final int keyCount;
+        private final int start;
+
+        Scan(int keyCount, int start) {
+            this.keyCount = keyCount;
+            this.start = start;
+        }
+
+        @Override
+        int next(Random random, int opIndex) {
+            return (start + opIndex) % keyCount;
+        }
+    }
+
+    //大部分访问集中在一小段热点key上，热点每隔hotShiftInterval次操作平移一次
+    private static class Hotspot extends KeyChooser {
+        private final int keyCount;
+        private final int hotCount;
+        private final double hotAccessRatio;
+        private final int shiftInterval;
+
+        Hotspot(Workload workload) {
+            keyCount = workload.keyCount;
+            hotCount = Math.max(1, (int) (workload.keyCount * workload.hotFraction));
+            hotAccessRatio = workload.hotAccessRatio;
+            shiftInterval = Math.max(1, workload.hotShiftInterval);
+        }
+
+        @Override
+        int next(Random random, int opIndex) {
+            if (random.nextDouble() < hotAccessRatio) {
+                long hotStart = (long) (opIndex / shiftInterval) * hotCount;
+                return (int) ((hotStart + random.nextInt(hotCount)) % keyCount);
+            }
+            return random.nextInt(keyCount);
+        }
+    }
+}
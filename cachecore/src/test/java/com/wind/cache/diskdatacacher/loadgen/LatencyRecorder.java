@@ -0,0 +1,54 @@
+package com.wind.cache.diskdatacacher.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * 记录每次操作的耗时(纳秒)，每个线程一个实例，结束后合并计算分位数
+ */
+class LatencyRecorder {
+
+    private long[] mSamples = new long[1024];
+
+    private int mCount;
+
+    void record(long nanos) {
+        if (mCount == mSamples.length) {
+            mSamples = Arrays.copyOf(mSamples, mCount * 2);
+        }
+        mSamples[mCount++] = nanos;
+    }
+
+    int count() {
+        return mCount;
+    }
+
+    static LatencyRecorder merge(LatencyRecorder[] recorders) {
+        LatencyRecorder merged = new LatencyRecorder();
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.mCount;
+        }
+        merged.mSamples = new long[Math.max(total, 1)];
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.mSamples, 0, merged.mSamples, merged.mCount, recorder.mCount);
+            merged.mCount += recorder.mCount;
+        }
+        Arrays.sort(merged.mSamples, 0, merged.mCount);
+        return merged;
+    }
+
+    //需要先merge排序
+    long percentile(double p) {
+        if (mCount == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100 * mCount) - 1;
+        return mSamples[Math.max(0, Math.min(index, mCount - 1))];
+    }
+
+    String summary() {
+        return String.format("count=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", mCount,
+                percentile(50) / 1000.0, percentile(90) / 1000.0, percentile(99) / 1000.0,
+                percentile(99.9) / 1000.0, percentile(100) / 1000.0);
+    }
+}
@@ -0,0 +1,247 @@
+package com.wind.cache.diskdatacacher.loadgen;
+
+import com.wind.cache.diskdatacacher.cachetool.DataCache;
+import com.wind.cache.diskdatacacher.cachetool.DiskDataCacher;
+import com.wind.cache.diskdatacacher.cachetool.KeyHasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * DiskDataCacher的压测和trace回放工具，在JVM上运行main方法即可，也可以通过gradle运行：
+ * ./gradlew :cachecore:loadgen -PloadgenArgs="--dist=zipf --threads=4"
+ * 参数例如：
+ * --dist=zipf --keys=10000 --threads=4 --ops=20000 --capacity=67108864
+ * --trace=/path/to/trace.txt --threads=2
+ * 输出吞吐量、各操作的耗时分位数、命中率、写入字节数以及每次淘汰删除的文件数，
+ * 用于在接近真实的负载下比较淘汰策略和存储方式的改动
+ */
+public class LoadGenerator {
+
+    private final Workload mWorkload;
+
+    private final DataCache mCache;
+
+    private final byte[] mValueSource;
+
+    public LoadGenerator(Workload workload, DataCache cache) {
+        mWorkload = workload;
+        mCache = cache;
+        mValueSource = new byte[Math.max(workload.maxValueSize, 1)];
+        new Random(workload.seed).nextBytes(mValueSource);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Workload workload = Workload.parse(args);
+        File dir;
+        if (workload.dir != null) {
+            dir = new File(workload.dir);
+            //不删除用户指定目录中的文件，避免误删，只接受不存在或者空的目录
+            String[] names = dir.list();
+            if (names != null && names.length > 0) {
+                throw new IllegalArgumentException("--dir must be an empty directory: " + dir.getAbsolutePath());
+            }
+        } else {
+            dir = createTempDir();
+        }
+        KeyHasher hasher = "murmur3".equals(workload.hasher) ? KeyHasher.MURMUR3_128 : KeyHasher.SHA256;
+        DiskDataCacher cache = new DiskDataCacher(dir, workload.capacity, hasher);
+        cache.setDurableWrite(workload.durable);
+        cache.initialize();
+        System.out.println("workload: " + workload);
+        System.out.println("cache dir: " + dir.getAbsolutePath());
+        new LoadGenerator(workload, cache).run().print(System.out, cache.getStats());
+    }
+
+    public Result run() throws IOException, InterruptedException {
+        final int threads = Math.max(mWorkload.threads, 1);
+        final List<List<TraceOp>> traceParts = mWorkload.trace != null
+                ? splitTrace(TraceOp.read(new File(mWorkload.trace)), threads) : null;
+        final double[] zipfCdf = traceParts == null && Workload.DIST_ZIPF.equals(mWorkload.distribution)
+                ? KeyChooser.zipfCdf(mWorkload.keyCount, mWorkload.zipfSkew) : null;
+        final Worker[] workers = new Worker[threads];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = new Worker(i);
+            workers[i] = worker;
+            final List<TraceOp> ops = traceParts != null ? traceParts.get(i) : null;
+            new Thread("LoadGenerator-" + i) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        if (ops != null) {
+                            worker.replay(ops);
+                        } else {
+                            worker.generate(KeyChooser.create(mWorkload, worker.index, zipfCdf));
+                        }
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return new Result(workers, elapsedNanos);
+    }
+
+    //按key的hash分配到各个线程，保证同一个key的操作顺序和trace一致
+    private static List<List<TraceOp>> splitTrace(List<TraceOp> ops, int threads) {
+        List<List<TraceOp>> parts = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            parts.add(new ArrayList<TraceOp>());
+        }
+        for (TraceOp op : ops) {
+            parts.get((op.key.hashCode() & Integer.MAX_VALUE) % threads).add(op);
+        }
+        return parts;
+    }
+
+    private class Worker {
+        final int index;
+        final Random random;
+        final LatencyRecorder getLatency = new LatencyRecorder();
+        final LatencyRecorder putLatency = new LatencyRecorder();
+        final LatencyRecorder removeLatency = new LatencyRecorder();
+        long hits;
+
+        Worker(int index) {
+            this.index = index;
+            this.random = new Random(mWorkload.seed * 31 + index);
+        }
+
+        void generate(KeyChooser chooser) {
+            for (int i = 0; i < mWorkload.opsPerThread; i++) {
+                String key = "key_" + chooser.next(random, i);
+                double op = random.nextDouble();
+                if (op < mWorkload.removeRatio) {
+                    remove(key);
+                } else if (op < mWorkload.removeRatio + mWorkload.readRatio) {
+                    if (!get(key) && mWorkload.fillOnMiss) {
+                        put(key, nextValueSize(), nextTtl());
+                    }
+                } else {
+                    put(key, nextValueSize(), nextTtl());
+                }
+            }
+        }
+
+        void replay(List<TraceOp> ops) {
+            for (TraceOp op : ops) {
+                if (op.type == TraceOp.GET) {
+                    get(op.key);
+                } else if (op.type == TraceOp.PUT) {
+                    put(op.key, op.size, op.ttlMillis);
+                } else {
+                    remove(op.key);
+                }
+            }
+        }
+
+        boolean get(String key) {
+            long start = System.nanoTime();
+            DataCache.Entry entry = mCache.get(key);
+            getLatency.record(System.nanoTime() - start);
+            if (entry != null) {
+                hits++;
+                return true;
+            }
+            return false;
+        }
+
+        void put(String key, int size, long ttlMillis) {
+            DataCache.Entry entry = new DataCache.Entry();
+            entry.data = newValue(size);
+            entry.validTimestamp = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0;
+            long start = System.nanoTime();
+            mCache.put(key, entry);
+            putLatency.record(System.nanoTime() - start);
+        }
+
+        //trace中的value可能比maxValueSize大，重复填充mValueSource得到需要的大小
+        byte[] newValue(int size) {
+            byte[] data = new byte[size];
+            for (int pos = 0; pos < size; pos += mValueSource.length) {
+                System.arraycopy(mValueSource, 0, data, pos, Math.min(mValueSource.length, size - pos));
+            }
+            return data;
+        }
+
+        void remove(String key) {
+            long start = System.nanoTime();
+            mCache.remove(key);
+            removeLatency.record(System.nanoTime() - start);
+        }
+
+        //value大小按对数均匀分布，小value多、大value少
+        int nextValueSize() {
+            double min = Math.log(Math.max(mWorkload.minValueSize, 1));
+            double max = Math.log(Math.max(mWorkload.maxValueSize, mWorkload.minValueSize));
+            return (int) Math.round(Math.exp(min + random.nextDouble() * (max - min)));
+        }
+
+        long nextTtl() {
+            return random.nextDouble() < mWorkload.ttlRatio ? mWorkload.ttlMillis : 0;
+        }
+    }
+
+    public static class Result {
+        final LatencyRecorder get;
+        final LatencyRecorder put;
+        final LatencyRecorder remove;
+        final long hits;
+        final long elapsedNanos;
+
+        Result(Worker[] workers, long elapsedNanos) {
+            LatencyRecorder[] gets = new LatencyRecorder[workers.length];
+            LatencyRecorder[] puts = new LatencyRecorder[workers.length];
+            LatencyRecorder[] removes = new LatencyRecorder[workers.length];
+            long hitCount = 0;
+            for (int i = 0; i < workers.length; i++) {
+                gets[i] = workers[i].getLatency;
+                puts[i] = workers[i].putLatency;
+                removes[i] = workers[i].removeLatency;
+                hitCount += workers[i].hits;
+            }
+            this.get = LatencyRecorder.merge(gets);
+            this.put = LatencyRecorder.merge(puts);
+            this.remove = LatencyRecorder.merge(removes);
+            this.hits = hitCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public void print(PrintStream out, DiskDataCacher.Stats stats) {
+            long ops = get.count() + put.count() + remove.count();
+            double seconds = elapsedNanos / 1e9;
+            out.println(String.format("elapsed=%.2fs ops=%d throughput=%.0f ops/s", seconds, ops, ops / seconds));
+            out.println("get    " + get.summary());
+            out.println("put    " + put.summary());
+            out.println("remove " + remove.summary());
+            out.println(String.format("hit ratio=%.2f%%", get.count() == 0 ? 0 : hits * 100.0 / get.count()));
+            if (stats != null) {
+                out.println(String.format("bytes written=%d evictions=%d evicted files=%d files/eviction=%.1f expired files=%d",
+                        stats.bytesWritten, stats.evictionCount, stats.evictedFileCount,
+                        stats.evictionCount == 0 ? 0 : stats.evictedFileCount / (double) stats.evictionCount,
+                        stats.expiredFileCount));
+            }
+        }
+    }
+
+    private static File createTempDir() throws IOException {
+        File file = File.createTempFile("loadgen", "");
+        if (!file.delete() || !file.mkdirs()) {
+            throw new IOException("Unable to create temp dir " + file.getAbsolutePath());
+        }
+        return file;
+    }
+}
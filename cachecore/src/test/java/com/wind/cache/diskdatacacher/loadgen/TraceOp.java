@@ -0,0 +1,64 @@
+package com.wind.cache.diskdatacacher.loadgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * trace中的一次操作，trace文件每行一个操作：
+ * get key
+ * put key size [ttlMillis]
+ * remove key
+ * 空行和#开头的行会被忽略
+ */
+class TraceOp {
+
+    static final int GET = 0;
+    static final int PUT = 1;
+    static final int REMOVE = 2;
+
+    final int type;
+    final String key;
+    final int size;
+    final long ttlMillis;
+
+    TraceOp(int type, String key, int size, long ttlMillis) {
+        this.type = type;
+        this.key = key;
+        this.size = size;
+        this.ttlMillis = ttlMillis;
+    }
+
+    static List<TraceOp> read(File file) throws IOException {
+        List<TraceOp> ops = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if ("get".equals(parts[0]) && parts.length == 2) {
+                    ops.add(new TraceOp(GET, parts[1], 0, 0));
+                } else if ("put".equals(parts[0]) && (parts.length == 3 || parts.length == 4)) {
+                    long ttl = parts.length == 4 ? Long.parseLong(parts[3]) : 0;
+                    ops.add(new TraceOp(PUT, parts[1], Integer.parseInt(parts[2]), ttl));
+                } else if ("remove".equals(parts[0]) && parts.length == 2) {
+                    ops.add(new TraceOp(REMOVE, parts[1], 0, 0));
+                } else {
+                    throw new IOException("Invalid trace line " + lineNumber + ": " + line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return ops;
+    }
+}
@@ -0,0 +1,130 @@
+package com.wind.cache.diskdatacacher.loadgen;
+
+/**
+ * 压测的负载配置，通过--name=value形式的命令行参数设置
+ */
+public class Workload {
+
+    public static final String DIST_UNIFORM = "uniform";
+    public static final String DIST_ZIPF = "zipf";
+    public static final String DIST_SCAN = "scan";
+    public static final String DIST_HOTSPOT = "hotspot";
+
+    //随机种子，相同的种子和配置生成相同的操作序列
+    public long seed = 42;
+
+    public int threads = 4;
+
+    public int opsPerThread = 20000;
+
+    public int keyCount = 10000;
+
+    //key的分布：uniform、zipf、scan、hotspot
+    public String distribution = DIST_ZIPF;
+
+    public double zipfSkew = 0.99;
+
+    //hotspot分布：热点key占全部key的比例，访问热点key的概率，以及每多少次操作热点整体平移一次
+    public double hotFraction = 0.1;
+    public double hotAccessRatio = 0.9;
+    public int hotShiftInterval = 5000;
+
+    //value大小在[minValueSize, maxValueSize]之间按对数均匀分布
+    public int minValueSize = 128;
+    public int maxValueSize = 64 * 1024;
+
+    public double readRatio = 0.8;
+    public double removeRatio = 0.01;
+
+    //get未命中时是否put，模拟先读缓存再请求网络的用法
+    public boolean fillOnMiss = true;
+
+    //带有效期的put所占比例以及有效期
+    public double ttlRatio = 0.2;
+    public long ttlMillis = 2000;
+
+    public long capacity = 64L * 1024 * 1024;
+
+    //key转换为文件名的方式：sha256、murmur3
+    public String hasher = "sha256";
+
+    public boolean durable = false;
+
+    //缓存目录，必须不存在或者为空，为空时使用新建的临时目录
+    public String dir;
+
+    //回放的trace文件，设置后忽略key和value的分布配置
+    public String trace;
+
+    public static Workload parse(String[] args) {
+        Workload workload = new Workload();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but was " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            workload.set(name, value);
+        }
+        return workload;
+    }
+
+    private void set(String name, String value) {
+        if ("seed".equals(name)) {
+            seed = Long.parseLong(value);
+        } else if ("threads".equals(name)) {
+            threads = Integer.parseInt(value);
+        } else if ("ops".equals(name)) {
+            opsPerThread = Integer.parseInt(value);
+        } else if ("keys".equals(name)) {
+            keyCount = Integer.parseInt(value);
+        } else if ("dist".equals(name)) {
+            distribution = value;
+        } else if ("zipfSkew".equals(name)) {
+            zipfSkew = Double.parseDouble(value);
+        } else if ("hotFraction".equals(name)) {
+            hotFraction = Double.parseDouble(value);
+        } else if ("hotAccessRatio".equals(name)) {
+            hotAccessRatio = Double.parseDouble(value);
+        } else if ("hotShiftInterval".equals(name)) {
+            hotShiftInterval = Integer.parseInt(value);
+        } else if ("minValue".equals(name)) {
+            minValueSize = Integer.parseInt(value);
+        } else if ("maxValue".equals(name)) {
+            maxValueSize = Integer.parseInt(value);
+        } else if ("readRatio".equals(name)) {
+            readRatio = Double.parseDouble(value);
+        } else if ("removeRatio".equals(name)) {
+            removeRatio = Double.parseDouble(value);
+        } else if ("fillOnMiss".equals(name)) {
+            fillOnMiss = Boolean.parseBoolean(value);
+        } else if ("ttlRatio".equals(name)) {
+            ttlRatio = Double.parseDouble(value);
+        } else if ("ttl".equals(name)) {
+            ttlMillis = Long.parseLong(value);
+        } else if ("capacity".equals(name)) {
+            capacity = Long.parseLong(value);
+        } else if ("hasher".equals(name)) {
+            hasher = value;
+        } else if ("durable".equals(name)) {
+            durable = Boolean.parseBoolean(value);
+        } else if ("dir".equals(name)) {
+            dir = value;
+        } else if ("trace".equals(name)) {
+            trace = value;
+        } else {
+            throw new IllegalArgumentException("Unknown option --" + name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (trace != null) {
+            return "trace=" + trace + " threads=" + threads + " capacity=" + capacity + " hasher=" + hasher + " durable=" + durable;
+        }
+        return "dist=" + distribution + " keys=" + keyCount + " threads=" + threads + " ops/thread=" + opsPerThread
+                + " value=[" + minValueSize + "," + maxValueSize + "] read=" + readRatio + " remove=" + removeRatio
+                + " ttlRatio=" + ttlRatio + " ttl=" + ttlMillis + " capacity=" + capacity + " hasher=" + hasher
+                + " durable=" + durable + " seed=" + seed;
+    }
+}